@@ -1,6 +1,8 @@
 plugins {
     id("com.github.ben-manes.versions") version "0.53.0"
     id("org.sonarqube") version "7.2.2.6593"
+    id("me.champeau.jmh") version "0.7.3"
+    id("org.graalvm.buildtools.native") version "0.10.6"
     application
     checkstyle
     jacoco
@@ -32,6 +34,9 @@ dependencies {
     annotationProcessor("info.picocli:picocli-codegen:4.7.7")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.20.1")
     implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("org.msgpack:jackson-dataformat-msgpack:0.9.8")
 
 }
 
@@ -43,6 +48,47 @@ tasks.test {
     useJUnitPlatform()
 }
 
+tasks.compileJava {
+    // picocli-codegen пишет reflect-config для команд в META-INF/native-image/picocli-generated/<project>
+    options.compilerArgs.add("-Aproject=${project.group}/${project.name}")
+}
+
+graalvmNative {
+    binaries {
+        named("main") {
+            // ./gradlew nativeCompile -> build/native/nativeCompile/gendiff
+            imageName.set("gendiff")
+            mainClass.set("hexlet.code.App")
+            buildArgs.add("--no-fallback")
+            // События hexlet.code.DiffStage (--stats) пишутся в JFR, а в native-image он включается явно
+            buildArgs.add("--enable-monitoring=jfr")
+            // Время холодного старта проверяет perf/startup-benchmark.sh
+            buildArgs.add("-O2")
+        }
+    }
+}
+
+distributions {
+    main {
+        contents {
+            // Клиент демона (gendiff --serve) ставится в bin рядом со скриптом app и откатывается на него
+            from("scripts") {
+                into("bin")
+                filePermissions { unix("rwxr-xr-x") }
+            }
+        }
+    }
+}
+
+jmh {
+    // Профилировщик gc показывает скорость аллокаций (gc.alloc.rate.norm) для каждого бенчмарка
+    profilers.add("gc")
+    // Результаты в JSON удобно сравнивать между версиями: build/results/jmh/results.json
+    resultFormat.set("JSON")
+    // Отдельные бенчмарки: ./gradlew jmh -PjmhIncludes=DiffBuilderBenchmark
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
 sonar {
     properties {
         property("sonar.projectKey", "Xomyakkk_java-project-71")
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Compares time-to-output of the JVM distribution and the native image on the test fixtures.
+#
+#   ./gradlew installDist nativeCompile
+#   perf/startup-benchmark.sh [runs]
+#
+# Each run is a fresh process, so the time includes JVM start (or native image start),
+# argument parsing, parsing both files and printing the diff. The outputs are small, so the
+# time until the process exits is the time until its first (and only) output.
+# Exits with 1 when the native median exceeds BUDGET_MS (default 50).
+
+set -eu
+
+cd "$(dirname "$0")/.."
+
+runs="${1:-20}"
+budget="${BUDGET_MS:-50}"
+jvm="build/install/app/bin/app"
+native="build/native/nativeCompile/gendiff"
+fixtures="src/test/resources"
+
+cases=(
+    "$fixtures/file1.json $fixtures/file2.json"
+    "$fixtures/file1.yaml $fixtures/file2.yaml"
+    "-r -f plain $fixtures/nested1.json $fixtures/nested2.json"
+)
+
+# Median wall time of one command in milliseconds
+median_ms() {
+    local times=()
+    for _ in $(seq "$runs"); do
+        local start end
+        start=$(date +%s%N)
+        "$@" > /dev/null
+        end=$(date +%s%N)
+        times+=($(( (end - start) / 1000000 )))
+    done
+    printf '%s\n' "${times[@]}" | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }'
+}
+
+status=0
+for binary in "$jvm" "$native"; do
+    if [ ! -x "$binary" ]; then
+        echo "skip: $binary not built" >&2
+        continue
+    fi
+    for args in "${cases[@]}"; do
+        # shellcheck disable=SC2086
+        ms=$(median_ms "$binary" $args)
+        printf '%-40s %-60s %5d ms\n' "$binary" "$args" "$ms"
+        if [ "$binary" = "$native" ] && [ "$ms" -gt "$budget" ]; then
+            echo "  over the ${budget} ms budget" >&2
+            status=1
+        fi
+    done
+done
+exit "$status"
@@ -0,0 +1,63 @@
+package hexlet.code.benchmark;
+
+import hexlet.code.parser.DataFormat;
+import hexlet.code.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор одного и того же документа из файлов JSON, Smile, CBOR и MessagePack.
+ *
+ * <p>Запуск: {@code make bench}. Размер каждого файла печатается перед измерениями, так что
+ * видно и время разбора, и объём ввода; формат определяется по сигнатуре, как у {@code gendiff}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BinaryFormatBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int keys;
+
+    @Param({"JSON", "SMILE", "CBOR", "MESSAGE_PACK"})
+    private DataFormat format;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void createFile() throws Exception {
+        Map<String, Object> document = new SyntheticDocuments(keys, 2, 0, 1).first();
+        file = Files.createTempFile("gendiff-" + format.name().toLowerCase(), ".bin");
+        Files.write(file, format.mapper().writeValueAsBytes(document));
+        System.out.printf("%n%s, %d keys: %d bytes%n", format, keys, Files.size(file));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Map<String, Object> parse() throws Exception {
+        return Parser.parse(file, "bin");
+    }
+}
@@ -0,0 +1,67 @@
+package hexlet.code.benchmark;
+
+import hexlet.code.core.DiffBuilder;
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.ParallelDiffBuilder;
+import hexlet.code.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение diff для документов, разобранных {@link Parser} (со структурными хешами).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiffBuilderBenchmark {
+
+    @Param({"1000", "100000"})
+    private int keys;
+
+    @Param({"1", "3"})
+    private int depth;
+
+    @Param({"0.01", "0.5"})
+    private double changeRatio;
+
+    private Map<String, Object> first;
+    private Map<String, Object> second;
+
+    @Setup
+    public void createDocuments() throws Exception {
+        SyntheticDocuments documents = new SyntheticDocuments(keys, depth, changeRatio, 1);
+        first = Parser.parse(SyntheticDocuments.toJson(documents.first()), "json");
+        second = Parser.parse(SyntheticDocuments.toJson(documents.second()), "json");
+    }
+
+    @Benchmark
+    public List<DiffNode> flat() {
+        return DiffBuilder.build(first, second, false);
+    }
+
+    @Benchmark
+    public List<DiffNode> recursive() {
+        return DiffBuilder.build(first, second, true);
+    }
+
+    @Benchmark
+    public List<DiffNode> recursiveParallel() {
+        return ParallelDiffBuilder.build(first, second, true, Runtime.getRuntime().availableProcessors());
+    }
+}
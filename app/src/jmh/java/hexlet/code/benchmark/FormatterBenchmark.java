@@ -0,0 +1,66 @@
+package hexlet.code.benchmark;
+
+import hexlet.code.core.DiffBuilder;
+import hexlet.code.core.DiffNode;
+import hexlet.code.formatter.Formatter;
+import hexlet.code.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Форматирование готового diff каждым форматом в пустой {@link Writer}.
+ *
+ * <p>Вывод никуда не пишется, поэтому {@code gc.alloc.rate.norm} показывает
+ * аллокации самого форматтера на один diff.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormatterBenchmark {
+
+    @Param({"stylish", "plain", "json"})
+    private String format;
+
+    @Param({"100000"})
+    private int keys;
+
+    @Param({"1", "3"})
+    private int depth;
+
+    @Param({"0.5"})
+    private double changeRatio;
+
+    private List<DiffNode> diff;
+    private Formatter formatter;
+
+    @Setup
+    public void createDiff() throws Exception {
+        SyntheticDocuments documents = new SyntheticDocuments(keys, depth, changeRatio, 1);
+        diff = DiffBuilder.build(
+                Parser.parse(SyntheticDocuments.toJson(documents.first()), "json"),
+                Parser.parse(SyntheticDocuments.toJson(documents.second()), "json"),
+                true);
+        formatter = Formatter.getFormatter(format);
+    }
+
+    @Benchmark
+    public void format() throws Exception {
+        formatter.format(diff, Writer.nullWriter());
+    }
+}
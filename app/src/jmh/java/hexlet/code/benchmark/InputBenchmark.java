@@ -0,0 +1,72 @@
+package hexlet.code.benchmark;
+
+import hexlet.code.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает чтение входного файла через {@code Files.readString} и через отображение в память.
+ *
+ * <p>Запуск: {@code make bench}. Разницу в аллокациях
+ * показывает метрика {@code gc.alloc.rate.norm}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InputBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int keys;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void createFile() throws Exception {
+        file = Files.createTempFile("gendiff-input", ".json");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("{");
+            for (int i = 0; i < keys; i++) {
+                if (i > 0) {
+                    writer.write(",");
+                }
+                writer.write("\"key" + i + "\": {\"value\": " + i + ", \"name\": \"name" + i + "\"}");
+            }
+            writer.write("}");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Map<String, Object> readString() throws Exception {
+        return Parser.parse(Files.readString(file), "json");
+    }
+
+    @Benchmark
+    public Map<String, Object> mapped() throws Exception {
+        return Parser.parse(file, "json");
+    }
+}
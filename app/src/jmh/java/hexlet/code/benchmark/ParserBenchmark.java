@@ -0,0 +1,55 @@
+package hexlet.code.benchmark;
+
+import hexlet.code.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор одного и того же документа из JSON и из YAML через {@link Parser#parse(String, String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"1000", "100000"})
+    private int keys;
+
+    @Param({"1", "3"})
+    private int depth;
+
+    private String json;
+    private String yaml;
+
+    @Setup
+    public void createDocuments() throws Exception {
+        SyntheticDocuments documents = new SyntheticDocuments(keys, depth, 0, 1);
+        json = SyntheticDocuments.toJson(documents.first());
+        yaml = SyntheticDocuments.toYaml(documents.first());
+    }
+
+    @Benchmark
+    public Map<String, Object> json() throws Exception {
+        return Parser.parse(json, "json");
+    }
+
+    @Benchmark
+    public Map<String, Object> yaml() throws Exception {
+        return Parser.parse(yaml, "yaml");
+    }
+}
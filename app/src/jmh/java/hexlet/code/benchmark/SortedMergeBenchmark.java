@@ -0,0 +1,88 @@
+package hexlet.code.benchmark;
+
+import hexlet.code.core.DiffBuilder;
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.Status;
+import hexlet.code.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Плоский diff больших карт: слияние отсортированных ключей против объединения ключей в {@link TreeSet}.
+ *
+ * <p>{@code treeSetUnion} — прежний алгоритм {@link DiffBuilder}, оставлен здесь как точка отсчёта.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class SortedMergeBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int keys;
+
+    @Param({"0.01"})
+    private double changeRatio;
+
+    private Map<String, Object> first;
+    private Map<String, Object> second;
+    private Map<String, Object> compactFirst;
+    private Map<String, Object> compactSecond;
+
+    @Setup
+    public void createDocuments() throws Exception {
+        SyntheticDocuments documents = new SyntheticDocuments(keys, 1, changeRatio, 1);
+        String firstJson = SyntheticDocuments.toJson(documents.first());
+        String secondJson = SyntheticDocuments.toJson(documents.second());
+        first = Parser.parse(firstJson, "json");
+        second = Parser.parse(secondJson, "json");
+        compactFirst = Parser.parseCompact(firstJson, "json");
+        compactSecond = Parser.parseCompact(secondJson, "json");
+    }
+
+    @Benchmark
+    public List<DiffNode> treeSetUnion() {
+        var union = new TreeSet<String>();
+        union.addAll(first.keySet());
+        union.addAll(second.keySet());
+
+        List<DiffNode> diff = new ArrayList<>();
+        for (String key : union) {
+            if (!first.containsKey(key)) {
+                diff.add(new DiffNode(key, Status.ADDED, null, second.get(key)));
+            } else if (!second.containsKey(key)) {
+                diff.add(new DiffNode(key, Status.REMOVED, first.get(key), null));
+            } else {
+                diff.add(DiffBuilder.compare(key, first.get(key), second.get(key), false));
+            }
+        }
+        return diff;
+    }
+
+    @Benchmark
+    public List<DiffNode> sortedMerge() {
+        return DiffBuilder.build(first, second, false);
+    }
+
+    @Benchmark
+    public List<DiffNode> sortedMergeCompact() {
+        return DiffBuilder.build(compactFirst, compactSecond, false);
+    }
+}
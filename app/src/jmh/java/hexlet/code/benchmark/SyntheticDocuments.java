@@ -0,0 +1,95 @@
+package hexlet.code.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Генератор синтетических конфигураций для бенчмарков.
+ *
+ * <p>Документ имеет {@code keys} ключей верхнего уровня; при {@code depth > 1} каждое значение —
+ * объект из {@link #FANOUT} ключей, и так до заданной глубины. Листья — числа, строки и булевы значения.
+ * Второй документ получается из первого изменением доли {@code changeRatio} листьев и
+ * удалением/добавлением четверти от этой доли ключей верхнего уровня.</p>
+ */
+final class SyntheticDocuments {
+
+    static final int FANOUT = 4;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+
+    private final Map<String, Object> first;
+    private final Map<String, Object> second;
+
+    SyntheticDocuments(int keys, int depth, double changeRatio, long seed) {
+        Random random = new Random(seed);
+        this.first = new LinkedHashMap<>();
+        for (int i = 0; i < keys; i++) {
+            first.put("key" + i, value(random, depth));
+        }
+        this.second = mutate(first, depth, changeRatio, random);
+    }
+
+    Map<String, Object> first() {
+        return first;
+    }
+
+    Map<String, Object> second() {
+        return second;
+    }
+
+    static String toJson(Map<String, Object> document) throws JsonProcessingException {
+        return JSON.writeValueAsString(document);
+    }
+
+    static String toYaml(Map<String, Object> document) throws JsonProcessingException {
+        return YAML.writeValueAsString(document);
+    }
+
+    private static Object value(Random random, int depth) {
+        if (depth > 1) {
+            Map<String, Object> nested = new LinkedHashMap<>();
+            for (int i = 0; i < FANOUT; i++) {
+                nested.put("child" + i, value(random, depth - 1));
+            }
+            return nested;
+        }
+        return switch (random.nextInt(3)) {
+            case 0 -> random.nextInt(100_000);
+            case 1 -> "value-" + random.nextInt(100_000);
+            default -> random.nextBoolean();
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> mutate(Map<String, Object> source, int depth, double changeRatio,
+                                              Random random) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                copy.put(entry.getKey(), mutate((Map<String, Object>) value, depth - 1, changeRatio, random));
+            } else if (random.nextDouble() < changeRatio) {
+                copy.put(entry.getKey(), value(random, 1));
+            } else {
+                copy.put(entry.getKey(), value);
+            }
+        }
+        // Часть ключей верхнего уровня удаляем и добавляем, чтобы в diff были ADDED и REMOVED
+        int moved = (int) (source.size() * changeRatio / 4);
+        var iterator = copy.keySet().iterator();
+        for (int i = 0; i < moved && iterator.hasNext(); i++) {
+            iterator.next();
+            iterator.remove();
+        }
+        for (int i = 0; i < moved; i++) {
+            copy.put("added" + i, value(random, depth));
+        }
+        return copy;
+    }
+}
@@ -1,18 +1,28 @@
 package hexlet.code;
 
+import hexlet.code.core.DiffStat;
+import hexlet.code.metrics.MetricsListener;
+import hexlet.code.parser.ParseCache;
+import hexlet.code.parser.PathFilter;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 @Command(
         name = "gendiff",
         mixinStandardHelpOptions = true,
         version = "0.1",
-        description = "Compares two configuration sources and shows a difference."
+        description = "Compares two configuration sources and shows a difference.",
+        subcommands = ApplyCommand.class
 )
 public final class App implements Callable<Integer> {
 
@@ -22,10 +32,105 @@ public final class App implements Callable<Integer> {
             paramLabel = "format")
     private String format;
 
-    @Parameters(index = "0", description = "path to first source")
+    @Option(names = {"--streaming"},
+            description = "read both sources as token streams; with --recursive, memory grows with nesting depth")
+    private boolean streaming;
+
+    @Option(names = {"--records"},
+            description = "treat both sources as JSON Lines or multi-document YAML and match records by this field; "
+                    + "inputs and output may be larger than memory",
+            paramLabel = "field")
+    private String recordKey;
+
+    @Option(names = {"--sort-memory"},
+            defaultValue = "64",
+            description = "input of each source sorted in memory before spilling to a temporary file with --records, "
+                    + "MB [default: ${DEFAULT-VALUE}]",
+            paramLabel = "MB")
+    private long sortMemory;
+
+    @Option(names = {"-w", "--watch"},
+            description = "keep running and print the updated diff every time one of the files is saved")
+    private boolean watch;
+
+    @Option(names = {"-r", "--recursive"},
+            description = "descend into nested objects and lists and show their changes key by key")
+    private boolean recursive;
+
+    @Option(names = {"-p", "--parallelism"},
+            defaultValue = "1",
+            description = "number of threads used to build the diff [default: ${DEFAULT-VALUE}]",
+            paramLabel = "N")
+    private int parallelism;
+
+    @Option(names = {"--compact"},
+            description = "keep parsed documents in a compact form with unboxed numbers; saves memory on large inputs")
+    private boolean compact;
+
+    @Option(names = {"--batch"},
+            description = "treat both sources as directories and compare files with the same relative path")
+    private boolean batch;
+
+    @Option(names = {"--manifest"},
+            description = "compare the pairs of paths listed in this file, one pair per line",
+            paramLabel = "file")
+    private File manifest;
+
+    @Option(names = {"--concurrency"},
+            description = "maximum number of pairs compared at once in batch mode, or of requests in daemon mode "
+                    + "[default: number of CPUs]",
+            paramLabel = "N")
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--cache-size"},
+            defaultValue = "256",
+            description = "memory for parsed files reused across pairs in batch and daemon modes, MB; 0 disables "
+                    + "[default: ${DEFAULT-VALUE}]",
+            paramLabel = "MB")
+    private long cacheSize;
+
+    @Option(names = {"--serve"},
+            description = "run as a daemon answering diff requests over HTTP on 127.0.0.1 (see scripts/gendiff-client)")
+    private boolean serve;
+
+    @Option(names = {"--port"},
+            defaultValue = "7171",
+            description = "port of the daemon started with --serve [default: ${DEFAULT-VALUE}]",
+            paramLabel = "port")
+    private int port;
+
+    @Option(names = {"-i", "--include"},
+            description = "compare only this path: dotted glob such as services.*.resources or a JSON Pointer; "
+                    + "repeatable",
+            paramLabel = "path")
+    private List<String> includes = new ArrayList<>();
+
+    @Option(names = {"-x", "--exclude"},
+            description = "skip this path while parsing, e.g. build.timestamp or /metadata/buildId; repeatable",
+            paramLabel = "path")
+    private List<String> excludes = new ArrayList<>();
+
+    @Option(names = {"-q", "--quiet"},
+            description = "print nothing; exit with 0 if the sources are equal, 1 if they differ and 2 on error")
+    private boolean quiet;
+
+    @Option(names = {"--stat"},
+            description = "print only the number of added, removed, unchanged and updated keys")
+    private boolean stat;
+
+    @Option(names = {"--stats"},
+            description = "print time, allocation, input size and node counts of every stage to stderr")
+    private boolean stats;
+
+    @Option(names = {"--stats-file"},
+            description = "append the same statistics to this file as JSON Lines",
+            paramLabel = "file")
+    private File statsFile;
+
+    @Parameters(index = "0", arity = "0..1", description = "path to first source")
     private File firstPath;
 
-    @Parameters(index = "1", description = "path to second source")
+    @Parameters(index = "1", arity = "0..1", description = "path to second source")
     private File secondPath;
 
     public static void main(String[] args) {
@@ -36,12 +141,140 @@ public final class App implements Callable<Integer> {
     @Override
     public Integer call() {
         try {
-            String diff = Differ.generate(firstPath.getPath(), secondPath.getPath(), format);
-            System.out.println(diff);
+            DiffOptions options = new DiffOptions(recursive, parallelism, compact, null, metricsListener(),
+                    PathFilter.of(includes, excludes));
+            if (serve) {
+                return runServer(options);
+            }
+            if (batch || manifest != null) {
+                return runBatch(options);
+            }
+            if (firstPath == null || secondPath == null) {
+                System.err.println("Missing required parameters: <firstPath>, <secondPath>");
+                return failure();
+            }
+            if ((streaming || recordKey != null) && !options.filter().isEmpty()) {
+                System.err.println("--include and --exclude are not supported with --streaming or --records");
+                return failure();
+            }
+            if (quiet || stat) {
+                return runSummary(options);
+            }
+            // Diff печатается по мере форматирования, а не собирается в одну строку
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+            if (options.metrics() != null && (watch || streaming || recordKey != null)) {
+                System.err.println("--stats and --stats-file are not supported with --watch, --streaming or --records");
+                return failure();
+            }
+            if (recordKey != null) {
+                return runRecords(options, out);
+            }
+            if (watch) {
+                if (streaming) {
+                    System.err.println("--watch keeps documents in memory and cannot be combined with --streaming");
+                    return failure();
+                }
+                new DiffWatcher(firstPath.toPath(), secondPath.toPath(), format, options, out).run(this::reportError);
+                return 0;
+            }
+            if (streaming) {
+                Differ.generateStreaming(firstPath.getPath(), secondPath.getPath(), format, options, out);
+            } else {
+                Differ.generate(firstPath.getPath(), secondPath.getPath(), format, options, out);
+            }
+            out.write(System.lineSeparator());
+            out.flush();
             return 0;
         } catch (Exception e) {
+            reportError(e);
+            return failure();
+        }
+    }
+
+    private void reportError(Exception e) {
+        if (!quiet) {
             System.err.println(e.getMessage());
-            return 1;
         }
     }
+
+    private int runRecords(DiffOptions options, Writer out) throws Exception {
+        if (watch || streaming) {
+            System.err.println("--records cannot be combined with --watch or --streaming");
+            return failure();
+        }
+        Differ.generateRecords(firstPath.getPath(), secondPath.getPath(), format, recordKey, sortMemory << 20,
+                options, out);
+        out.write(System.lineSeparator());
+        out.flush();
+        return 0;
+    }
+
+    // С --quiet код 1 означает «различаются», поэтому ошибка получает отдельный код
+    private int failure() {
+        return quiet ? 2 : 1;
+    }
+
+    private int runSummary(DiffOptions options) throws Exception {
+        if (watch || recordKey != null || options.metrics() != null) {
+            System.err.println("--quiet and --stat cannot be combined with --watch, --records or --stats");
+            return failure();
+        }
+        String first = firstPath.getPath();
+        String second = secondPath.getPath();
+        if (quiet) {
+            // Потоковое сравнение прекращает чтение на первом различии
+            boolean differs = streaming
+                    ? Differ.differsStreaming(first, second)
+                    : Differ.differs(first, second, options);
+            return differs ? 1 : 0;
+        }
+        DiffStat summary = streaming
+                ? Differ.statStreaming(first, second, options)
+                : Differ.stat(first, second, options);
+        System.out.println(summary);
+        return 0;
+    }
+
+    private MetricsListener metricsListener() {
+        MetricsListener text = stats ? MetricsListener.text(System.err) : null;
+        MetricsListener file = statsFile != null ? MetricsListener.jsonLines(statsFile.toPath()) : null;
+        if (text != null && file != null) {
+            return metrics -> {
+                text.onMetrics(metrics);
+                file.onMetrics(metrics);
+            };
+        }
+        return text != null ? text : file;
+    }
+
+    private int runServer(DiffOptions options) throws Exception {
+        // Демон сравнивает одни и те же файлы снова и снова: разобранные документы держим в кеше
+        DiffOptions serverOptions = cacheSize > 0
+                ? options.withCache(new ParseCache(cacheSize << 20, options.compact()))
+                : options;
+        DiffServer server = DiffServer.start(port, serverOptions, concurrency);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.err.println("gendiff daemon listening on http://127.0.0.1:" + server.port() + "/diff, token in "
+                + server.tokenFile());
+        Thread.currentThread().join();
+        return 0;
+    }
+
+    private int runBatch(DiffOptions options) throws Exception {
+        List<BatchDiffer.Pair> pairs;
+        if (manifest != null) {
+            pairs = BatchDiffer.fromManifest(manifest.toPath());
+        } else if (firstPath != null && secondPath != null) {
+            pairs = BatchDiffer.fromDirectories(firstPath.toPath(), secondPath.toPath());
+        } else {
+            System.err.println("Batch mode requires two directories or --manifest");
+            return failure();
+        }
+        // В пакетном режиме один и тот же файл часто сравнивается со многими: разбираем его один раз
+        DiffOptions batchOptions = cacheSize > 0
+                ? options.withCache(new ParseCache(cacheSize << 20, options.compact()))
+                : options;
+        boolean success = BatchDiffer.run(pairs, format, batchOptions, concurrency, System.out::println);
+        return success ? 0 : failure();
+    }
 }
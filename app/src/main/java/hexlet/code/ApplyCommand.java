@@ -0,0 +1,40 @@
+package hexlet.code;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Подкоманда {@code gendiff apply}: накладывает патч на документ и печатает результат.
+ */
+@Command(
+        name = "apply",
+        mixinStandardHelpOptions = true,
+        description = "Applies a patch (output of --format patch or any RFC 6902 JSON Patch) to a source "
+                + "and prints the result in the format of the source."
+)
+public final class ApplyCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "path to the source")
+    private File sourcePath;
+
+    @Parameters(index = "1", description = "path to the patch")
+    private File patchPath;
+
+    @Override
+    public Integer call() {
+        try {
+            OutputStream out = new BufferedOutputStream(System.out);
+            Differ.applyPatch(sourcePath.getPath(), patchPath.getPath(), out);
+            out.flush();
+            return 0;
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+}
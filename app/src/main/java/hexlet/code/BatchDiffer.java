@@ -0,0 +1,177 @@
+package hexlet.code;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Сравнивает много пар файлов за один запуск JVM.
+ *
+ * <p>Пары берутся из двух деревьев каталогов (файлы сопоставляются по относительному пути)
+ * или из файла-манифеста. Каждая пара сравнивается через {@link Differ#generate} в отдельной
+ * задаче; одновременно выполняется не больше {@code concurrency} задач, а результаты
+ * выводятся строго в порядке пар, как только готовы.</p>
+ */
+public final class BatchDiffer {
+
+    private BatchDiffer() {
+    }
+
+    /**
+     * Пара файлов для сравнения. Если файл есть только с одной стороны, вторая сторона — {@code null}.
+     *
+     * @param name   имя пары в выводе (относительный путь или строка манифеста)
+     * @param first  первый файл
+     * @param second второй файл
+     */
+    public record Pair(String name, Path first, Path second) {
+    }
+
+    /**
+     * Сопоставляет обычные файлы двух каталогов по относительному пути.
+     *
+     * @param firstDir  первый каталог
+     * @param secondDir второй каталог
+     * @return пары, отсортированные по относительному пути
+     * @throws IOException если каталог не удалось обойти
+     */
+    public static List<Pair> fromDirectories(Path firstDir, Path secondDir) throws IOException {
+        Map<String, Path> firstFiles = listFiles(firstDir);
+        Map<String, Path> secondFiles = listFiles(secondDir);
+
+        TreeMap<String, Pair> pairs = new TreeMap<>();
+        firstFiles.forEach((name, path) -> pairs.put(name, new Pair(name, path, secondFiles.get(name))));
+        secondFiles.forEach((name, path) -> pairs.putIfAbsent(name, new Pair(name, null, path)));
+        return new ArrayList<>(pairs.values());
+    }
+
+    /**
+     * Читает пары из манифеста: по паре путей в строке, разделённых табуляцией или пробелами.
+     * Пустые строки и строки, начинающиеся с {@code #}, пропускаются; относительные пути
+     * считаются от каталога манифеста.
+     *
+     * @param manifest путь к манифесту
+     * @return пары в порядке строк манифеста
+     * @throws IOException если манифест не удалось прочитать
+     */
+    public static List<Pair> fromManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<Pair> pairs = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest)) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] paths = trimmed.contains("\t") ? trimmed.split("\t+") : trimmed.split("\\s+");
+            if (paths.length != 2) {
+                throw new IllegalArgumentException("Manifest line must contain two paths: " + line);
+            }
+            pairs.add(new Pair(trimmed, base.resolve(paths[0]), base.resolve(paths[1])));
+        }
+        return pairs;
+    }
+
+    /**
+     * Сравнивает все пары и передаёт отчёт по каждой в {@code sink} в порядке списка.
+     *
+     * @param pairs       пары файлов
+     * @param formatName  формат вывода diff
+     * @param options     настройки построения diff
+     * @param concurrency максимальное число одновременно сравниваемых пар
+     * @param sink        получатель отчётов
+     * @return {@code true}, если все пары удалось сравнить
+     * @throws InterruptedException если ожидание результата было прервано
+     */
+    public static boolean run(List<Pair> pairs, String formatName, DiffOptions options, int concurrency,
+                              Consumer<String> sink) throws InterruptedException {
+        int window = Math.max(1, concurrency);
+        boolean success = true;
+        ExecutorService executor = newExecutor(window);
+        try {
+            Deque<Future<Report>> pending = new ArrayDeque<>();
+            for (Pair pair : pairs) {
+                // Окно ограничивает и число задач в работе, и число готовых, но ещё не выведенных отчётов
+                if (pending.size() == window) {
+                    success &= emit(pending.removeFirst(), sink);
+                }
+                pending.addLast(executor.submit(() -> compare(pair, formatName, options)));
+            }
+            while (!pending.isEmpty()) {
+                success &= emit(pending.removeFirst(), sink);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return success;
+    }
+
+    private record Report(String text, boolean success) {
+    }
+
+    private static Report compare(Pair pair, String formatName, DiffOptions options) {
+        if (pair.second() == null) {
+            return new Report("Only in first: " + pair.name(), true);
+        }
+        if (pair.first() == null) {
+            return new Report("Only in second: " + pair.name(), true);
+        }
+        String header = "diff " + pair.first() + " " + pair.second() + "\n";
+        try {
+            return new Report(header + Differ.generate(pair.first().toString(), pair.second().toString(),
+                    formatName, options), true);
+        } catch (Exception e) {
+            return new Report(header + "Error: " + e.getMessage(), false);
+        }
+    }
+
+    private static boolean emit(Future<Report> future, Consumer<String> sink) throws InterruptedException {
+        try {
+            Report report = future.get();
+            sink.accept(report.text());
+            return report.success();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Map<String, Path> listFiles(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("Not a directory: " + dir);
+        }
+        Map<String, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.filter(Files::isRegularFile)
+                    .forEach(path -> files.put(dir.relativize(path).toString().replace('\\', '/'), path));
+        }
+        return files;
+    }
+
+    /**
+     * Создаёт исполнителя на виртуальных потоках, если JVM их поддерживает (Java 21+).
+     * На более старых JVM используется пул платформенных потоков размера {@code concurrency}.
+     *
+     * @param concurrency размер пула платформенных потоков
+     * @return исполнитель задач сравнения
+     */
+    static ExecutorService newExecutor(int concurrency) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package hexlet.code;
+
+import hexlet.code.metrics.MetricsListener;
+import hexlet.code.parser.ParseCache;
+import hexlet.code.parser.PathFilter;
+
+/**
+ * Настройки построения diff, общие для CLI и программного API.
+ *
+ * @param recursive   спускаться ли во вложенные объекты (статус NESTED) и списки (NESTED_LIST)
+ *                    вместо сравнения их целиком
+ * @param parallelism число потоков для построения diff; 1 — последовательно
+ * @param compact     читать документы в компактную модель без упаковки чисел
+ *                    (см. {@link hexlet.code.parser.Parser#parseCompact(java.nio.file.Path, String)})
+ * @param cache       кеш разобранных документов или {@code null}, если файлы разбираются каждый раз
+ * @param metrics     получатель метрик каждого построенного diff или {@code null}
+ * @param filter      пути, которые сравниваются и пропускаются; применяется при разборе,
+ *                    {@code null} равносилен {@link PathFilter#ALL}
+ */
+public record DiffOptions(boolean recursive, int parallelism, boolean compact, ParseCache cache,
+                          MetricsListener metrics, PathFilter filter) {
+
+    public static final DiffOptions DEFAULT = new DiffOptions(false, 1, false, null);
+
+    public DiffOptions {
+        filter = filter == null ? PathFilter.ALL : filter;
+    }
+
+    public DiffOptions(boolean recursive, int parallelism, boolean compact, ParseCache cache) {
+        this(recursive, parallelism, compact, cache, null, PathFilter.ALL);
+    }
+
+    public DiffOptions withCache(ParseCache parseCache) {
+        return new DiffOptions(recursive, parallelism, compact, parseCache, metrics, filter);
+    }
+
+    public DiffOptions withMetrics(MetricsListener listener) {
+        return new DiffOptions(recursive, parallelism, compact, cache, listener, filter);
+    }
+
+    public DiffOptions withFilter(PathFilter pathFilter) {
+        return new DiffOptions(recursive, parallelism, compact, cache, metrics, pathFilter);
+    }
+}
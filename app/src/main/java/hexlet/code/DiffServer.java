@@ -0,0 +1,320 @@
+package hexlet.code;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hexlet.code.formatter.Formatter;
+import hexlet.code.metrics.MetricsRecorder;
+import hexlet.code.metrics.Stage;
+import hexlet.code.parser.Parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Долгоживущий процесс, который строит diff по HTTP-запросам на loopback-интерфейсе.
+ *
+ * <p>JVM запускается один раз: разогретые JIT парсеры и форматтеры, а с кешем из {@link DiffOptions}
+ * и разобранные документы, переиспользуются всеми запросами. Поддерживаются два вида запросов:</p>
+ * <ul>
+ *     <li>{@code GET /diff?first=путь&second=путь&format=stylish&recursive=true} — сравнение файлов,
+ *         пути должны быть абсолютными или заданными относительно рабочего каталога сервера;</li>
+ *     <li>{@code POST /diff?format=plain} с телом
+ *         {@code {"first": "...", "firstFormat": "json", "second": "...", "secondFormat": "yaml"}} —
+ *         сравнение переданных текстов.</li>
+ * </ul>
+ *
+ * <p>Успешный ответ — {@code 200} и текст diff; ошибка разбора или чтения — {@code 400} и сообщение.
+ * Сервер слушает только {@code 127.0.0.1}, но этого мало: страница в браузере может обратиться к loopback
+ * через подменённый DNS, а другой пользователь машины — напрямую. Поэтому запрос принимается, только если
+ * заголовок {@code Host} — {@code localhost} или {@code 127.0.0.1} с портом сервера, а заголовок
+ * {@value #TOKEN_HEADER} содержит случайный токен из файла, доступного лишь владельцу ({@code 0600});
+ * иначе ответ — {@code 403}. Файл создаётся при запуске и удаляется в {@link #stop()}.</p>
+ */
+public final class DiffServer {
+
+    /** Заголовок запроса с токеном из файла {@link #tokenFile(int)}. */
+    public static final String TOKEN_HEADER = "X-Gendiff-Token";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int TOKEN_BYTES = 32;
+    private static final int FORBIDDEN = 403;
+    private static final int UNAVAILABLE = 503;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final DiffOptions options;
+    private final Semaphore permits;
+    private final Path tokenFile;
+    private final byte[] token;
+
+    private DiffServer(HttpServer server, ExecutorService executor, DiffOptions options, int concurrency,
+                       Path tokenFile, String token) {
+        this.server = server;
+        this.executor = executor;
+        this.options = options;
+        // Виртуальные потоки не ограничены числом: одновременные запросы ограничивает семафор
+        this.permits = new Semaphore(concurrency);
+        this.tokenFile = tokenFile;
+        this.token = token.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Запускает сервер с токеном в файле {@link #tokenFile(int)} и сразу возвращает управление.
+     *
+     * @param port        порт на loopback-интерфейсе; 0 — любой свободный
+     * @param options     настройки построения diff; {@code recursive} задаёт значение по умолчанию для запросов
+     * @param concurrency число одновременно обрабатываемых запросов
+     * @return запущенный сервер
+     * @throws IOException если порт занят или файл токена не удалось создать
+     */
+    public static DiffServer start(int port, DiffOptions options, int concurrency) throws IOException {
+        return start(port, options, concurrency, null);
+    }
+
+    /**
+     * Запускает сервер и сразу возвращает управление.
+     *
+     * @param port        порт на loopback-интерфейсе; 0 — любой свободный
+     * @param options     настройки построения diff; {@code recursive} задаёт значение по умолчанию для запросов
+     * @param concurrency число одновременно обрабатываемых запросов
+     * @param tokenFile   куда записать токен; {@code null} — {@link #tokenFile(int)} для фактического порта
+     * @return запущенный сервер
+     * @throws IOException если порт занят или файл токена не удалось создать
+     */
+    public static DiffServer start(int port, DiffOptions options, int concurrency, Path tokenFile)
+            throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        Path file = tokenFile != null ? tokenFile : tokenFile(server.getAddress().getPort());
+        String token;
+        try {
+            token = writeToken(file);
+        } catch (IOException e) {
+            server.stop(0);
+            throw e;
+        }
+        int limit = Math.max(1, concurrency);
+        ExecutorService executor = BatchDiffer.newExecutor(limit);
+        DiffServer diffServer = new DiffServer(server, executor, options, limit, file, token);
+        server.createContext("/diff", diffServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        return diffServer;
+    }
+
+    /**
+     * Возвращает путь к файлу токена сервера на этом порту, который читает {@code scripts/gendiff-client}.
+     *
+     * @param port порт сервера
+     * @return {@code ~/.gendiff/daemon-<порт>.token}
+     */
+    public static Path tokenFile(int port) {
+        return Path.of(System.getProperty("user.home"), ".gendiff", "daemon-" + port + ".token");
+    }
+
+    /**
+     * Возвращает порт, на котором слушает сервер.
+     *
+     * @return номер порта
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Возвращает путь к файлу с токеном этого сервера.
+     *
+     * @return путь к файлу
+     */
+    public Path tokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * Останавливает сервер, не дожидаясь незавершённых запросов, и удаляет файл токена.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            // Файл остаётся, но токен с остановленным сервером уже бесполезен
+        }
+    }
+
+    private static String writeToken(Path file) throws IOException {
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        String token = HexFormat.of().formatHex(random);
+
+        boolean posix = file.getFileSystem().supportedFileAttributeViews().contains("posix");
+        Path directory = file.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        // Файл создаётся заново, чтобы права 0600 были у него с самого начала, а не выставлялись после записи
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.writeString(file, token, StandardCharsets.US_ASCII);
+        return token;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!trusted(exchange)) {
+                respond(exchange, FORBIDDEN, "Requests need a loopback Host header and the token from " + tokenFile);
+                return;
+            }
+            permits.acquire();
+            try {
+                serve(exchange);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, UNAVAILABLE, "Server is stopping");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean trusted(HttpExchange exchange) {
+        // Проверка Host отсекает DNS rebinding: чужое имя, указывающее на 127.0.0.1, сюда не пройдёт
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        String suffix = ":" + port();
+        if (!("localhost" + suffix).equalsIgnoreCase(host) && !("127.0.0.1" + suffix).equals(host)) {
+            return false;
+        }
+        String presented = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        return presented != null && MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!"GET".equals(method) && !"POST".equals(method)) {
+            respond(exchange, 405, "Use GET for files or POST for inline documents");
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        try {
+            String diff = "GET".equals(method)
+                    ? diffFiles(query)
+                    : diffBodies(query, exchange.getRequestBody());
+            respond(exchange, 200, diff);
+        } catch (Exception e) {
+            respond(exchange, 400, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private String diffFiles(Map<String, String> query) throws Exception {
+        String first = required(query, "first");
+        String second = required(query, "second");
+        return Differ.generate(first, second, query.getOrDefault("format", "stylish"), requestOptions(query));
+    }
+
+    private String diffBodies(Map<String, String> query, InputStream body) throws Exception {
+        Map<?, ?> request = JSON.readValue(body, Map.class);
+        DiffOptions requestOptions = requestOptions(query);
+        MetricsRecorder recorder = MetricsRecorder.start(requestOptions.metrics());
+        Map<String, Object> data1 = parseBody(request, "first", requestOptions, recorder, Stage.PARSE_FIRST);
+        Map<String, Object> data2 = parseBody(request, "second", requestOptions, recorder, Stage.PARSE_SECOND);
+        StringWriter out = new StringWriter();
+        Differ.generate(data1, data2, Formatter.getFormatter(query.getOrDefault("format", "stylish")),
+                requestOptions, recorder, out);
+        return out.toString();
+    }
+
+    private static Map<String, Object> parseBody(Map<?, ?> request, String side, DiffOptions requestOptions,
+                                                 MetricsRecorder recorder, Stage stage) throws Exception {
+        String text = requiredText(request, side);
+        Map<String, Object> document;
+        try (MetricsRecorder.Span span = recorder.begin(stage, null)) {
+            document = Parser.parse(text, formatOf(request, side + "Format"), requestOptions.filter());
+            span.input(text.getBytes(StandardCharsets.UTF_8).length);
+        }
+        recorder.document(document);
+        return document;
+    }
+
+    private DiffOptions requestOptions(Map<String, String> query) {
+        String recursive = query.get("recursive");
+        return recursive == null
+                ? options
+                : new DiffOptions(Boolean.parseBoolean(recursive), options.parallelism(), options.compact(),
+                        options.cache(), options.metrics(), options.filter());
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter: " + name);
+        }
+        return value;
+    }
+
+    private static String requiredText(Map<?, ?> request, String name) {
+        Object value = request.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Missing document text: " + name);
+        }
+        return (String) value;
+    }
+
+    private static String formatOf(Map<?, ?> request, String name) {
+        Object value = request.get(name);
+        return value instanceof String ? (String) value : "json";
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package hexlet.code;
+
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.IncrementalDiffBuilder;
+import hexlet.code.core.ParallelDiffBuilder;
+import hexlet.code.formatter.Formatter;
+import hexlet.code.parser.Parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Следит за двумя файлами и печатает обновлённый diff после каждого сохранения.
+ *
+ * <p>Разобранные документы и последний diff хранятся в памяти. При изменении файла заново
+ * разбирается только он, а diff перестраивается через {@link IncrementalDiffBuilder}: узлы
+ * неизменившихся ключей переиспользуются, пересчитываются только затронутые поддеревья.
+ * Если файл не удалось разобрать (например, он сохранён наполовину), ошибка передаётся обработчику
+ * из {@link #run(Consumer)}, а прежний документ остаётся в силе до следующего сохранения.</p>
+ *
+ * <p>Файлы читаются целиком в кучу, а не отображаются в память, как в {@link Differ}: редактор может
+ * обрезать файл прямо во время разбора, и чтение из отображения тогда падает с {@link InternalError}
+ * (SIGBUS), а не с обычным исключением. Кроме того, отображение не даёт сохранять файл в Windows.
+ * Кеш документов из {@link DiffOptions#cache()} не используется: файлы перечитываются после каждого
+ * сохранения.</p>
+ */
+public final class DiffWatcher {
+
+    /** Сколько ждать следующих событий после первого: редакторы сохраняют файл в несколько шагов. */
+    private static final long SETTLE_MILLIS = 20;
+
+    private final Path first;
+    private final Path second;
+    private final Formatter formatter;
+    private final DiffOptions options;
+    private final Writer out;
+
+    private Map<String, Object> data1;
+    private Map<String, Object> data2;
+    private List<DiffNode> diff;
+
+    /**
+     * Создаёт наблюдателя; файлы читаются при вызове {@link #start()}.
+     *
+     * @param first      первый файл
+     * @param second     второй файл
+     * @param formatName имя формата вывода
+     * @param options    настройки построения diff
+     * @param out        куда печатать diff после каждого изменения
+     */
+    public DiffWatcher(Path first, Path second, String formatName, DiffOptions options, Writer out) {
+        this.first = first.toAbsolutePath().normalize();
+        this.second = second.toAbsolutePath().normalize();
+        this.formatter = Formatter.getFormatter(formatName);
+        this.options = options;
+        this.out = out;
+    }
+
+    /**
+     * Разбирает оба файла и печатает первый diff.
+     *
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public void start() throws Exception {
+        data1 = read(first);
+        data2 = read(second);
+        diff = ParallelDiffBuilder.build(data1, data2, options.recursive(), options.parallelism());
+        print();
+    }
+
+    /**
+     * Перечитывает изменившиеся файлы и печатает diff, если он изменился.
+     *
+     * @param firstChanged  изменился ли первый файл
+     * @param secondChanged изменился ли второй файл
+     * @return {@code true}, если diff перестроен и напечатан
+     * @throws Exception если файл не удалось прочитать или разобрать; прежнее состояние сохраняется
+     */
+    public boolean refresh(boolean firstChanged, boolean secondChanged) throws Exception {
+        Map<String, Object> next1 = firstChanged ? read(first) : data1;
+        Map<String, Object> next2 = secondChanged ? read(second) : data2;
+
+        List<DiffNode> next = IncrementalDiffBuilder.rebuild(data1, data2, diff, next1, next2, options.recursive());
+        data1 = next1;
+        data2 = next2;
+        // Если ни один ключ не изменился, возвращается прежний список: сравнивать diff целиком не нужно
+        if (next == diff) {
+            return false;
+        }
+        diff = next;
+        print();
+        return true;
+    }
+
+    /**
+     * Печатает первый diff и дальше следит за файлами, пока поток не прерван.
+     *
+     * @param errors обработчик ошибок чтения и разбора изменившихся файлов; наблюдение после них продолжается
+     * @throws Exception если файлы не удалось прочитать при запуске или наблюдение невозможно
+     */
+    public void run(Consumer<Exception> errors) throws Exception {
+        start();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            register(watcher, first.getParent());
+            if (!second.getParent().equals(first.getParent())) {
+                register(watcher, second.getParent());
+            }
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watcher.take();
+                boolean[] changed = new boolean[2];
+                // Собираем все события, пришедшие вслед за первым, и перечитываем файлы один раз
+                while (key != null) {
+                    collect(key, changed);
+                    key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed[0] || changed[1]) {
+                    refreshReportingErrors(changed[0], changed[1], errors);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Object> read(Path path) throws Exception {
+        byte[] content = Files.readAllBytes(path);
+        String format = Differ.detectFormat(path.toString());
+        return options.compact()
+                ? Parser.parseCompact(content, format, options.filter())
+                : Parser.parse(content, format, options.filter());
+    }
+
+    private void refreshReportingErrors(boolean firstChanged, boolean secondChanged, Consumer<Exception> errors) {
+        try {
+            refresh(firstChanged, secondChanged);
+        } catch (Exception e) {
+            errors.accept(e);
+        }
+    }
+
+    private void collect(WatchKey key, boolean[] changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // События потеряны: перечитываем оба файла
+                changed[0] = true;
+                changed[1] = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            changed[0] |= path.equals(first);
+            changed[1] |= path.equals(second);
+        }
+        key.reset();
+    }
+
+    private static void register(WatchService watcher, Path directory) throws IOException {
+        // Многие редакторы сохраняют через новый файл и переименование, поэтому нужен и ENTRY_CREATE
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void print() throws IOException {
+        formatter.format(diff, out);
+        out.write(System.lineSeparator());
+        out.flush();
+    }
+}
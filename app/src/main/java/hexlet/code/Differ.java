@@ -1,41 +1,443 @@
 package hexlet.code;
 
-import hexlet.code.core.DiffBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import hexlet.code.core.DiffNode;
+import hexlet.code.core.DiffStat;
+import hexlet.code.core.JsonPatch;
+import hexlet.code.core.ParallelDiffBuilder;
+import hexlet.code.core.StreamingDiffBuilder;
+import hexlet.code.core.StructuralHash;
+import hexlet.code.formatter.DiffWriter;
 import hexlet.code.formatter.Formatter;
+import hexlet.code.metrics.MetricsRecorder;
+import hexlet.code.metrics.Stage;
+import hexlet.code.parser.DataFormat;
 import hexlet.code.parser.Parser;
+import hexlet.code.parser.SortedKeys;
+import hexlet.code.parser.SortedRecords;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Differ {
 
+    // Потоки-демоны: фоновый разбор не должен мешать завершению JVM
+    private static final ExecutorService PARSE_EXECUTOR = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "gendiff-parse");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public static String generate(String firstPath, String secondPath) throws Exception {
         return generate(firstPath, secondPath, "stylish");
     }
 
     public static String generate(String firstPath, String secondPath, String formatName) throws Exception {
-        String firstContent = Files.readString(Path.of(firstPath));
-        String secondContent = Files.readString(Path.of(secondPath));
-
-        int firstPathLastDot = firstPath.lastIndexOf('.');
-        String firstFormat = firstPathLastDot == -1 || firstPathLastDot == firstPath.length() - 1
-                ? firstPath
-                : firstPath.substring(firstPathLastDot + 1).toLowerCase();
-        int secondPathLastDot = secondPath.lastIndexOf('.');
-        String secondFormat = secondPathLastDot == -1 || secondPathLastDot == secondPath.length() - 1
-                ? secondPath
-                : secondPath.substring(secondPathLastDot + 1).toLowerCase();
-
-        Parser parser = new Parser();
-        Map<String, Object> data1 = parser.parse(firstContent, firstFormat);
-        Map<String, Object> data2 = parser.parse(secondContent, secondFormat);
-
-        List<DiffNode> diff = DiffBuilder.build(data1, data2);
+        return generate(firstPath, secondPath, formatName, DiffOptions.DEFAULT);
+    }
+
+    public static String generate(String firstPath, String secondPath, String formatName,
+                                  DiffOptions options) throws Exception {
+        StringWriter out = new StringWriter();
+        generate(firstPath, secondPath, formatName, options, out);
+        return out.toString();
+    }
+
+    /**
+     * Строит diff и пишет его прямо в {@code out}, не собирая весь текст в памяти.
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param formatName имя формата вывода
+     * @param options    настройки построения diff
+     * @param out        выходной поток; не закрывается и не сбрасывается
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static void generate(String firstPath, String secondPath, String formatName,
+                                DiffOptions options, Writer out) throws Exception {
+        Formatter formatter = Formatter.getFormatter(formatName);
+        MetricsRecorder recorder = MetricsRecorder.start(options.metrics());
+        Documents documents = parseBoth(firstPath, secondPath, options, recorder);
+        generate(documents.first(), documents.second(), formatter, options, recorder, out);
+    }
+
+    /**
+     * Проверяет, различаются ли файлы, не строя diff.
+     *
+     * <p>Оба файла разбираются целиком, но узлы diff не создаются. Различающиеся документы обычно
+     * отличаются уже по готовым структурным хешам корней; совпавшие хеши подтверждаются обходом
+     * ({@link StructuralHash#same}), так что для равных файлов время пропорционально их размеру.
+     * Остановиться на первом различии, не дочитывая файлы, позволяет {@link #differsStreaming}.</p>
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param options    настройки разбора
+     * @return {@code true}, если документы различаются
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static boolean differs(String firstPath, String secondPath, DiffOptions options) throws Exception {
+        Documents documents = parseBoth(firstPath, secondPath, options, MetricsRecorder.start(null));
+        return !StructuralHash.same(documents.first(), documents.second());
+    }
+
+    /**
+     * Проверяет, различаются ли файлы, сравнивая их потоково по токенам и останавливаясь на первом различии.
+     *
+     * <p>Сначала оба файла параллельно проверяются на порядок ключей ({@link SortedKeys}); это проход
+     * токенизатора без создания значений. Неупорядоченный файл переписывается во временный.</p>
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @return {@code true}, если документы различаются
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static boolean differsStreaming(String firstPath, String secondPath) throws Exception {
+        try (Opened<SortedKeys> sorted = openBoth(firstPath, secondPath, Differ::sortKeys);
+             JsonParser first = sorted.first().createParser();
+             JsonParser second = sorted.second().createParser()) {
+            return StreamingDiffBuilder.differ(first, second);
+        }
+    }
+
+    /**
+     * Считает узлы diff каждого статуса, не сохраняя сами узлы.
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param options    настройки построения diff
+     * @return счётчики узлов
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static DiffStat stat(String firstPath, String secondPath, DiffOptions options) throws Exception {
+        Documents documents = parseBoth(firstPath, secondPath, options, MetricsRecorder.start(null));
+        return DiffStat.of(documents.first(), documents.second(), options.recursive());
+    }
+
+    /**
+     * Считает узлы diff каждого статуса, читая оба файла потоково и сравнивая значения по токенам.
+     * Загружаются только пары списков в рекурсивном режиме (см. {@link StreamingDiffBuilder#stat}).
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param options    настройки построения diff
+     * @return счётчики узлов
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static DiffStat statStreaming(String firstPath, String secondPath, DiffOptions options) throws Exception {
+        requireNoFilter(options);
+        try (Opened<SortedKeys> sorted = openBoth(firstPath, secondPath, Differ::sortKeys);
+             JsonParser first = sorted.first().createParser();
+             JsonParser second = sorted.second().createParser()) {
+            return StreamingDiffBuilder.stat(first, second, options.recursive());
+        }
+    }
+
+    private static Documents parseBoth(String firstPath, String secondPath, DiffOptions options,
+                                       MetricsRecorder recorder) throws Exception {
+        // Второй файл читается и разбирается в фоне, пока этот поток разбирает первый
+        CompletableFuture<Map<String, Object>> second =
+                parseAsync(secondPath, options, recorder, Stage.PARSE_SECOND, PARSE_EXECUTOR);
+        Map<String, Object> data1 = parse(firstPath, options, recorder, Stage.PARSE_FIRST);
+        return new Documents(data1, await(second));
+    }
+
+    private record Documents(Map<String, Object> first, Map<String, Object> second) {
+    }
+
+    /**
+     * Строит diff асинхронно: оба файла читаются и разбираются параллельно в задачах {@code executor},
+     * а построение и форматирование выполняются, когда готовы обе стороны.
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param formatName имя формата вывода
+     * @param options    настройки построения diff
+     * @param executor   исполнитель для разбора и построения diff
+     * @return будущий отформатированный diff; ошибки чтения, разбора и неизвестный формат
+     *         завершают его исключением
+     */
+    public static CompletableFuture<String> generateAsync(String firstPath, String secondPath, String formatName,
+                                                          DiffOptions options, Executor executor) {
+        MetricsRecorder recorder = MetricsRecorder.start(options.metrics());
+        CompletableFuture<Map<String, Object>> first =
+                parseAsync(firstPath, options, recorder, Stage.PARSE_FIRST, executor);
+        CompletableFuture<Map<String, Object>> second =
+                parseAsync(secondPath, options, recorder, Stage.PARSE_SECOND, executor);
+        return first.thenCombineAsync(second, (data1, data2) -> {
+            StringWriter out = new StringWriter();
+            try {
+                generate(data1, data2, Formatter.getFormatter(formatName), options, recorder, out);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            return out.toString();
+        }, executor);
+    }
+
+    /**
+     * Строит diff асинхронно на общем пуле разбора.
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param formatName имя формата вывода
+     * @return будущий отформатированный diff
+     * @see #generateAsync(String, String, String, DiffOptions, Executor)
+     */
+    public static CompletableFuture<String> generateAsync(String firstPath, String secondPath, String formatName) {
+        return generateAsync(firstPath, secondPath, formatName, DiffOptions.DEFAULT, PARSE_EXECUTOR);
+    }
+
+    static void generate(Map<String, Object> data1, Map<String, Object> data2, Formatter formatter,
+                         DiffOptions options, MetricsRecorder recorder, Writer out) throws IOException {
+        List<DiffNode> diff;
+        try (MetricsRecorder.Span span = recorder.begin(Stage.BUILD, null)) {
+            diff = ParallelDiffBuilder.build(data1, data2, options.recursive(), options.parallelism());
+        }
+        try (MetricsRecorder.Span span = recorder.begin(Stage.FORMAT, null)) {
+            formatter.format(diff, out);
+        }
+        recorder.finish(diff);
+    }
+
+    /**
+     * Строит diff, читая оба файла потоково, без загрузки документов в память целиком.
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param formatName имя формата вывода
+     * @return отформатированный diff
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static String generateStreaming(String firstPath, String secondPath, String formatName) throws Exception {
+        StringWriter out = new StringWriter();
+        generateStreaming(firstPath, secondPath, formatName, DiffOptions.DEFAULT, out);
+        return out.toString();
+    }
+
+    /**
+     * Строит diff, читая оба файла потоково, и пишет каждый узел в {@code out} сразу после сравнения.
+     *
+     * <p>Ни документы, ни список узлов, ни текст diff целиком в памяти не хранятся; что загружается,
+     * описано в {@link StreamingDiffBuilder}. Файл с неупорядоченными ключами сначала переписывается
+     * во временный ({@link SortedKeys}), оба файла — параллельно. В рекурсивном режиме совпавший
+     * объект выводится блоком неизменённых ключей, а не одной строкой.</p>
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param formatName имя формата вывода
+     * @param options    настройки построения diff
+     * @param out        выходной поток; не закрывается и не сбрасывается
+     * @throws Exception если файлы не удалось прочитать или разобрать
+     */
+    public static void generateStreaming(String firstPath, String secondPath, String formatName,
+                                         DiffOptions options, Writer out) throws Exception {
+        requireNoFilter(options);
+        Formatter formatter = Formatter.getFormatter(formatName);
+        try (Opened<SortedKeys> sorted = openBoth(firstPath, secondPath, Differ::sortKeys);
+             JsonParser first = sorted.first().createParser();
+             JsonParser second = sorted.second().createParser()) {
+            DiffWriter writer = formatter.writer(out);
+            // В нерекурсивном режиме каждый файл читается своим потоком, слияние и вывод идут в этом
+            StreamingDiffBuilder.build(first, second, options.recursive(), PARSE_EXECUTOR, writer);
+            writer.finish();
+        }
+    }
+
+    /**
+     * Сравнивает два файла записей (JSON Lines, несколько документов YAML), сопоставляя записи по ключевому полю.
+     *
+     * <p>Каждая сторона сортируется внешней сортировкой ({@link SortedRecords}), второй файл — в фоне,
+     * параллельно с первым. Затем записи сливаются, и каждый узел пишется в {@code out} сразу после
+     * сравнения: ни записи, ни diff целиком в памяти не хранятся, и выход может быть больше памяти.</p>
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param formatName имя формата вывода
+     * @param keyField   поле верхнего уровня, по значению которого сопоставляются записи
+     * @param runBytes   сколько байтов каждого входа сортировать в памяти, прежде чем сбросить на диск
+     * @param options    настройки построения diff
+     * @param out        выходной поток; не закрывается и не сбрасывается
+     * @throws Exception если файлы не удалось прочитать, разобрать или отсортировать
+     */
+    public static void generateRecords(String firstPath, String secondPath, String formatName, String keyField,
+                                       long runBytes, DiffOptions options, Writer out) throws Exception {
+        requireNoFilter(options);
         Formatter formatter = Formatter.getFormatter(formatName);
-        return formatter.format(diff);
+        try (Opened<SortedRecords> records = openBoth(firstPath, secondPath,
+                path -> SortedRecords.sort(Path.of(path), detectFormat(path), keyField, runBytes))) {
+            DiffWriter writer = formatter.writer(out);
+            StreamingDiffBuilder.build(records.first(), records.second(), options.recursive(), writer);
+            writer.finish();
+        }
+    }
+
+    private static SortedKeys sortKeys(String path) throws IOException {
+        return SortedKeys.open(Path.of(path), detectFormat(path));
+    }
+
+    /**
+     * Готовит обе стороны к потоковому сравнению: второй файл — в фоне, параллельно с первым.
+     *
+     * @param firstPath  путь к первому файлу
+     * @param secondPath путь ко второму файлу
+     * @param opener     подготовка одного файла, например сортировка
+     * @param <T>        результат подготовки; держит временные файлы до закрытия
+     * @return обе стороны; закрыть после использования
+     * @throws Exception если хотя бы одну сторону не удалось подготовить
+     */
+    private static <T extends Closeable> Opened<T> openBoth(String firstPath, String secondPath,
+                                                            Opener<T> opener) throws Exception {
+        CompletableFuture<T> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return opener.open(secondPath);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, PARSE_EXECUTOR);
+        T first;
+        try {
+            first = opener.open(firstPath);
+        } catch (Exception e) {
+            // Временные файлы второй стороны удаляются, даже если первая не подготовилась
+            second.thenAccept(Differ::closeQuietly);
+            throw e;
+        }
+        try {
+            return new Opened<>(first, await(second));
+        } catch (Exception e) {
+            closeQuietly(first);
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Opener<T> {
+        T open(String path) throws IOException;
+    }
+
+    private record Opened<T extends Closeable>(T first, T second) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            try (second) {
+                first.close();
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        try {
+            resource.close();
+        } catch (IOException e) {
+            // Остались временные файлы; ошибку подготовки важнее сообщить вызывающему
+        }
+    }
+
+    /**
+     * Накладывает патч на документ: вывод формата {@code patch} или любой другой JSON Patch (RFC 6902).
+     *
+     * <p>Патч читается по одной операции и применяется к документу на месте, так что время наложения
+     * растёт с размером патча; разбирается и записывается документ, разумеется, целиком.
+     * Патч может быть и в двоичном формате (Smile, CBOR, MessagePack) — он распознаётся так же, как вход diff.</p>
+     *
+     * @param sourcePath путь к исходному документу
+     * @param patchPath  путь к патчу
+     * @return изменённый документ из изменяемых {@code LinkedHashMap} и {@code ArrayList}
+     * @throws Exception если файлы не удалось прочитать или патч не подходит к документу
+     */
+    public static Map<String, Object> applyPatch(String sourcePath, String patchPath) throws Exception {
+        Map<String, Object> document = Parser.parseMutable(Path.of(sourcePath), detectFormat(sourcePath));
+        try (JsonParser patch = Parser.createParser(Path.of(patchPath), detectFormat(patchPath))) {
+            return JsonPatch.apply(document, patch);
+        }
+    }
+
+    /**
+     * Накладывает патч на документ и пишет результат в {@code out} в формате исходного документа.
+     *
+     * @param sourcePath путь к исходному документу
+     * @param patchPath  путь к патчу
+     * @param out        выходной поток; не закрывается
+     * @throws Exception если файлы не удалось прочитать или патч не подходит к документу
+     */
+    public static void applyPatch(String sourcePath, String patchPath, OutputStream out) throws Exception {
+        Map<String, Object> document = applyPatch(sourcePath, patchPath);
+        DataFormat format = DataFormat.detect(Path.of(sourcePath), detectFormat(sourcePath));
+        try (JsonGenerator generator = format.mapper().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (format == DataFormat.JSON) {
+                generator.useDefaultPrettyPrinter();
+            }
+            format.mapper().writeValue(generator, document);
+        }
+    }
+
+    static CompletableFuture<Map<String, Object>> parseAsync(String path, DiffOptions options,
+                                                             MetricsRecorder recorder, Stage stage, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parse(path, options, recorder, stage);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static Map<String, Object> parse(String path, DiffOptions options, MetricsRecorder recorder,
+                                             Stage stage) throws Exception {
+        Map<String, Object> document;
+        // Файлы отображаются в память и читаются прямо при разборе, поэтому ввод-вывод входит в этап разбора
+        try (MetricsRecorder.Span span = recorder.begin(stage, path)) {
+            document = parse(path, options);
+            span.input(Files.size(Path.of(path)));
+        }
+        recorder.document(document);
+        return document;
+    }
+
+    static Map<String, Object> parse(String path, DiffOptions options) throws Exception {
+        if (options.cache() != null) {
+            return options.cache().parse(Path.of(path), detectFormat(path), options.filter());
+        }
+        return options.compact()
+                ? Parser.parseCompact(Path.of(path), detectFormat(path), options.filter())
+                : Parser.parse(Path.of(path), detectFormat(path), options.filter());
+    }
+
+    private static void requireNoFilter(DiffOptions options) {
+        // Потоковый читатель фильтр путей не применяет
+        if (!options.filter().isEmpty()) {
+            throw new IllegalArgumentException("Path filters are not supported in streaming mode");
+        }
+    }
+
+    static String detectFormat(String path) {
+        int lastDot = path.lastIndexOf('.');
+        return lastDot == -1 || lastDot == path.length() - 1
+                ? path
+                : path.substring(lastDot + 1).toLowerCase();
     }
 
 }
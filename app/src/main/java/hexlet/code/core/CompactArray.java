@@ -0,0 +1,112 @@
+package hexlet.code.core;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToLongFunction;
+
+/**
+ * Компактное неизменяемое представление массива документа.
+ *
+ * <p>Элементы хранятся в {@link CompactValues}, примитивы — без упаковки.
+ * Структурный хеш совпадает с хешем {@link HashedList} с теми же элементами.</p>
+ *
+ * @see CompactObject
+ */
+public final class CompactArray extends AbstractList<Object> implements Hashed, RandomAccess {
+
+    private static final long ARRAY_OBJECT_BYTES = 24;
+
+    private final CompactValues values;
+    private final long hash;
+
+    private CompactArray(CompactValues values) {
+        this.values = values;
+
+        long accumulated = values.size();
+        for (int i = 0; i < values.size(); i++) {
+            accumulated = StructuralHash.combineList(accumulated, values.hash(i));
+        }
+        this.hash = StructuralHash.finishList(accumulated);
+    }
+
+    @Override
+    public long structuralHash() {
+        return hash;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (index < 0 || index >= values.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + values.size());
+        }
+        return values.get(index);
+    }
+
+    long elementHash(int index) {
+        return values.hash(index);
+    }
+
+    /**
+     * Оценивает память, занятую массивом, не упаковывая элементы.
+     *
+     * @param nested оценка элемента-ссылки: строки или вложенного контейнера
+     * @return размер в байтах
+     */
+    public long estimateBytes(ToLongFunction<Object> nested) {
+        return ARRAY_OBJECT_BYTES + values.estimateBytes(nested);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof List && StructuralHash.same(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        // Из структурного хеша, как и equals: у byte[] собственный hashCode зависит от ссылки
+        return Long.hashCode(structuralHash());
+    }
+
+    /**
+     * Накопитель элементов массива в порядке документа.
+     */
+    public static final class Builder implements CompactBuilder {
+
+        private final CompactValues.Builder values = new CompactValues.Builder();
+
+        @Override
+        public void addNull() {
+            values.addNull();
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            values.addBoolean(value);
+        }
+
+        @Override
+        public void addLong(long value) {
+            values.addLong(value);
+        }
+
+        @Override
+        public void addDouble(double value) {
+            values.addDouble(value);
+        }
+
+        @Override
+        public void addReference(Object value) {
+            values.addReference(value);
+        }
+
+        public CompactArray build() {
+            return new CompactArray(values.build());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package hexlet.code.core;
+
+/**
+ * Приёмник значений при построении {@link CompactObject} или {@link CompactArray}.
+ *
+ * <p>Примитивы передаются без упаковки; строки, вложенные контейнеры и прочие значения —
+ * через {@link #addReference(Object)}.</p>
+ */
+public interface CompactBuilder {
+
+    void addNull();
+
+    void addBoolean(boolean value);
+
+    /**
+     * Добавляет целое; значения в пределах {@code int} читаются как {@link Integer}, остальные — как {@link Long}.
+     *
+     * @param value целое значение
+     */
+    void addLong(long value);
+
+    void addDouble(double value);
+
+    void addReference(Object value);
+}
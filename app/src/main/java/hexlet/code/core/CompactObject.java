@@ -0,0 +1,313 @@
+package hexlet.code.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Компактное неизменяемое представление объекта документа.
+ *
+ * <p>Вместо {@code LinkedHashMap} с упакованными значениями объект хранит массив ключей,
+ * значения в {@link CompactValues} (примитивы без упаковки) и индексы ключей в порядке
+ * сортировки. Итерация идёт в порядке документа, поиск по ключу — двоичный по отсортированным
+ * индексам. Объект реализует {@link Map}, поэтому форматтеры и {@link DiffBuilder} работают
+ * с ним так же, как с обычной картой, а структурный хеш совпадает с хешем {@link HashedMap}.</p>
+ */
+public final class CompactObject extends AbstractMap<String, Object> implements Hashed {
+
+    private static final long OBJECT_BYTES = 32;
+
+    private final String[] keys;
+    private final int[] sorted;
+    private final CompactValues values;
+    private final long hash;
+
+    private CompactObject(String[] keys, int[] sorted, CompactValues values) {
+        this.keys = keys;
+        this.sorted = sorted;
+        this.values = values;
+
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++) {
+            sum = StructuralHash.combineMap(sum, StructuralHash.ofString(keys[i]), values.hash(i));
+        }
+        this.hash = StructuralHash.finishMap(sum, keys.length);
+    }
+
+    @Override
+    public long structuralHash() {
+        return hash;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Возвращает ключ по его месту в порядке сортировки.
+     *
+     * @param rank позиция в отсортированном порядке, от нуля
+     * @return ключ
+     */
+    public String sortedKey(int rank) {
+        return keys[sorted[rank]];
+    }
+
+    /**
+     * Возвращает значение по месту ключа в порядке сортировки.
+     *
+     * @param rank позиция в отсортированном порядке, от нуля
+     * @return значение (примитивы упаковываются при чтении)
+     */
+    public Object sortedValue(int rank) {
+        return values.get(sorted[rank]);
+    }
+
+    /**
+     * Сравнивает значения двух объектов без упаковки примитивов.
+     *
+     * @param rank      позиция ключа в этом объекте в отсортированном порядке
+     * @param other     другой объект
+     * @param otherRank позиция ключа в другом объекте в отсортированном порядке
+     * @return {@code true}, если значения равны
+     */
+    public boolean sameValue(int rank, CompactObject other, int otherRank) {
+        return values.same(sorted[rank], other.values, other.sorted[otherRank]);
+    }
+
+    /**
+     * Оценивает память, занятую объектом, не упаковывая значения.
+     *
+     * <p>Ключи учитываются только как ссылки: Jackson канонизирует имена полей, и строки одинаковых
+     * ключей общие для всех объектов документа.</p>
+     *
+     * @param nested оценка значения-ссылки: строки или вложенного контейнера
+     * @return размер в байтах
+     */
+    public long estimateBytes(ToLongFunction<Object> nested) {
+        // Массив ссылок на ключи и массив int-индексов сортировки
+        long index = 2 * CompactValues.ARRAY_BYTES + (CompactValues.REFERENCE_BYTES + Integer.BYTES) * keys.length;
+        return OBJECT_BYTES + index + values.estimateBytes(nested);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values.get(index);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return keys.length;
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (index >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>(keys[index], values.get(index));
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Map && StructuralHash.same(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        // Из структурного хеша, как и equals: у byte[] собственный hashCode зависит от ссылки
+        return Long.hashCode(structuralHash());
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = keys[sorted[middle]].compareTo((String) key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return sorted[middle];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Накопитель ключей и значений объекта в порядке документа.
+     */
+    public static final class Builder implements CompactBuilder {
+
+        private static final int INSERTION_SORT_LIMIT = 16;
+
+        private final List<String> keys = new ArrayList<>();
+        private final CompactValues.Builder values = new CompactValues.Builder();
+
+        /**
+         * Добавляет ключ; следом нужно добавить ровно одно значение.
+         *
+         * @param key ключ (желательно уже интернированный)
+         * @return этот же накопитель
+         */
+        public Builder key(String key) {
+            keys.add(key);
+            return this;
+        }
+
+        @Override
+        public void addNull() {
+            values.addNull();
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            values.addBoolean(value);
+        }
+
+        @Override
+        public void addLong(long value) {
+            values.addLong(value);
+        }
+
+        @Override
+        public void addDouble(double value) {
+            values.addDouble(value);
+        }
+
+        @Override
+        public void addReference(Object value) {
+            values.addReference(value);
+        }
+
+        /**
+         * Строит объект; при повторяющихся ключах, как и в {@code LinkedHashMap.put}, ключ остаётся
+         * на месте первого вхождения, а значение берётся из последнего.
+         *
+         * @return неизменяемый компактный объект
+         */
+        public CompactObject build() {
+            String[] keyArray = keys.toArray(new String[0]);
+            CompactValues valueSet = values.build();
+            int[] sorted = sortedOrder(keyArray);
+
+            // Сортировка устойчива: равные ключи идут подряд в порядке документа
+            int[] source = null;
+            int duplicates = 0;
+            int run = 0;
+            for (int i = 1; i <= sorted.length; i++) {
+                if (i < sorted.length && keyArray[sorted[run]].equals(keyArray[sorted[i]])) {
+                    continue;
+                }
+                if (i - run > 1) {
+                    if (source == null) {
+                        source = identity(keyArray.length);
+                    }
+                    source[sorted[run]] = sorted[i - 1];
+                    for (int k = run + 1; k < i; k++) {
+                        source[sorted[k]] = -1;
+                    }
+                    duplicates += i - run - 1;
+                }
+                run = i;
+            }
+            if (duplicates == 0) {
+                return new CompactObject(keyArray, sorted, valueSet);
+            }
+
+            String[] uniqueKeys = new String[keyArray.length - duplicates];
+            int[] picked = new int[uniqueKeys.length];
+            int target = 0;
+            for (int i = 0; i < keyArray.length; i++) {
+                if (source[i] != -1) {
+                    uniqueKeys[target] = keyArray[i];
+                    picked[target] = source[i];
+                    target++;
+                }
+            }
+            return new CompactObject(uniqueKeys, sortedOrder(uniqueKeys), valueSet.select(picked));
+        }
+
+        private static int[] identity(int length) {
+            int[] result = new int[length];
+            for (int i = 0; i < length; i++) {
+                result[i] = i;
+            }
+            return result;
+        }
+
+        private static int[] sortedOrder(String[] keyArray) {
+            int[] order = identity(keyArray.length);
+            if (order.length > 1) {
+                sort(order, order.clone(), 0, order.length, keyArray);
+            }
+            return order;
+        }
+
+        // Устойчивая сортировка слиянием по индексам: Arrays.sort с компаратором требует Integer[]
+        private static void sort(int[] target, int[] buffer, int from, int to, String[] keyArray) {
+            if (to - from <= INSERTION_SORT_LIMIT) {
+                for (int i = from + 1; i < to; i++) {
+                    int index = target[i];
+                    int j = i;
+                    while (j > from && keyArray[target[j - 1]].compareTo(keyArray[index]) > 0) {
+                        target[j] = target[j - 1];
+                        j--;
+                    }
+                    target[j] = index;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            // Половины сортируются в буфер, а затем сливаются обратно в target
+            sort(buffer, target, from, middle, keyArray);
+            sort(buffer, target, middle, to, keyArray);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || left < middle && keyArray[buffer[left]].compareTo(keyArray[buffer[right]]) <= 0) {
+                    target[i] = buffer[left++];
+                } else {
+                    target[i] = buffer[right++];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package hexlet.code.core;
+
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * Значения компактного объекта или массива: тег типа и примитив или ссылка в параллельных массивах.
+ *
+ * <p>Числа и булевы значения хранятся без упаковки: {@code long} в {@link #primitives},
+ * вещественные — как биты {@code double}. Строки и вложенные контейнеры лежат в {@link #references}.
+ * Упакованный объект создаётся только при чтении значения через {@link #get(int)}.</p>
+ */
+final class CompactValues {
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    /** Целое, помещающееся в {@code int}: читается как {@link Integer}, как у Jackson. */
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    /** Строка, вложенный контейнер или другое значение (например, {@code BigInteger}). */
+    static final byte REFERENCE = 6;
+
+    // Оценка размеров на 64-битной JVM со сжатыми указателями
+    static final long ARRAY_BYTES = 16;
+    static final long REFERENCE_BYTES = 4;
+
+    private final byte[] tags;
+    private final long[] primitives;
+    private final Object[] references;
+
+    private CompactValues(byte[] tags, long[] primitives, Object[] references) {
+        this.tags = tags;
+        this.primitives = primitives;
+        this.references = references;
+    }
+
+    int size() {
+        return tags.length;
+    }
+
+    byte tag(int index) {
+        return tags[index];
+    }
+
+    Object get(int index) {
+        return switch (tags[index]) {
+            case NULL -> null;
+            case FALSE -> Boolean.FALSE;
+            case TRUE -> Boolean.TRUE;
+            case INT -> (int) primitives[index];
+            case LONG -> primitives[index];
+            case DOUBLE -> Double.longBitsToDouble(primitives[index]);
+            default -> references[index];
+        };
+    }
+
+    /**
+     * Сравнивает значение с значением другого набора без упаковки примитивов.
+     *
+     * @param index      индекс в этом наборе
+     * @param other      другой набор
+     * @param otherIndex индекс в другом наборе
+     * @return {@code true}, если значения равны
+     */
+    boolean same(int index, CompactValues other, int otherIndex) {
+        byte tag = tags[index];
+        if (tag != other.tags[otherIndex]) {
+            return false;
+        }
+        return switch (tag) {
+            case NULL, FALSE, TRUE -> true;
+            case INT, LONG, DOUBLE -> primitives[index] == other.primitives[otherIndex];
+            default -> StructuralHash.same(references[index], other.references[otherIndex]);
+        };
+    }
+
+    /**
+     * Возвращает новый набор из значений с указанными индексами (так отбрасываются повторяющиеся ключи).
+     *
+     * @param indices индексы значений в порядке нового набора
+     * @return новый набор значений
+     */
+    CompactValues select(int[] indices) {
+        byte[] newTags = new byte[indices.length];
+        long[] newPrimitives = primitives == null ? null : new long[indices.length];
+        Object[] newReferences = references == null ? null : new Object[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            newTags[i] = tags[indices[i]];
+            if (newPrimitives != null) {
+                newPrimitives[i] = primitives[indices[i]];
+            }
+            if (newReferences != null) {
+                newReferences[i] = references[indices[i]];
+            }
+        }
+        return new CompactValues(newTags, newPrimitives, newReferences);
+    }
+
+    /**
+     * Оценивает память массивов набора и, через {@code nested}, значений-ссылок; примитивы не упаковываются.
+     *
+     * @param nested оценка строки или вложенного контейнера
+     * @return размер в байтах
+     */
+    long estimateBytes(ToLongFunction<Object> nested) {
+        long bytes = ARRAY_BYTES + tags.length;
+        if (primitives != null) {
+            bytes += ARRAY_BYTES + (long) Long.BYTES * primitives.length;
+        }
+        if (references != null) {
+            bytes += ARRAY_BYTES + REFERENCE_BYTES * references.length;
+            for (int i = 0; i < references.length; i++) {
+                if (tags[i] == REFERENCE) {
+                    bytes += nested.applyAsLong(references[i]);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    long hash(int index) {
+        return switch (tags[index]) {
+            case NULL -> StructuralHash.ofNull();
+            case FALSE -> StructuralHash.ofBoolean(false);
+            case TRUE -> StructuralHash.ofBoolean(true);
+            case INT -> StructuralHash.ofInt((int) primitives[index]);
+            case LONG -> StructuralHash.ofLong(primitives[index]);
+            case DOUBLE -> StructuralHash.ofDouble(Double.longBitsToDouble(primitives[index]));
+            default -> StructuralHash.of(references[index]);
+        };
+    }
+
+    /**
+     * Накопитель значений; после {@link #build()} массивы обрезаются до фактического размера.
+     */
+    static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private byte[] tags = new byte[INITIAL_CAPACITY];
+        private long[] primitives;
+        private Object[] references;
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void addNull() {
+            add(NULL);
+        }
+
+        void addBoolean(boolean value) {
+            add(value ? TRUE : FALSE);
+        }
+
+        void addLong(long value) {
+            int index = add(value == (int) value ? INT : LONG);
+            primitives()[index] = value;
+        }
+
+        void addDouble(double value) {
+            int index = add(DOUBLE);
+            primitives()[index] = Double.doubleToLongBits(value);
+        }
+
+        void addReference(Object value) {
+            if (value == null) {
+                addNull();
+                return;
+            }
+            int index = add(REFERENCE);
+            references()[index] = value;
+        }
+
+        CompactValues build() {
+            return new CompactValues(
+                    Arrays.copyOf(tags, size),
+                    primitives == null ? null : Arrays.copyOf(primitives, size),
+                    references == null ? null : Arrays.copyOf(references, size));
+        }
+
+        private int add(byte tag) {
+            if (size == tags.length) {
+                int capacity = size * 2;
+                tags = Arrays.copyOf(tags, capacity);
+                primitives = primitives == null ? null : Arrays.copyOf(primitives, capacity);
+                references = references == null ? null : Arrays.copyOf(references, capacity);
+            }
+            tags[size] = tag;
+            return size++;
+        }
+
+        private long[] primitives() {
+            if (primitives == null) {
+                primitives = new long[tags.length];
+            }
+            return primitives;
+        }
+
+        private Object[] references() {
+            if (references == null) {
+                references = new Object[tags.length];
+            }
+            return references;
+        }
+    }
+}
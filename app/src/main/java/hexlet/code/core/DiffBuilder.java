@@ -1,10 +1,9 @@
 package hexlet.code.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.TreeSet;
 
 public final class DiffBuilder {
 
@@ -12,24 +11,171 @@ public final class DiffBuilder {
     }
 
     public static List<DiffNode> build(Map<String, Object> data1, Map<String, Object> data2) {
-        var keys = new TreeSet<String>();
-        keys.addAll(data1.keySet());
-        keys.addAll(data2.keySet());
-
-        List<DiffNode> diff = new ArrayList<>();
-
-        for (String key : keys) {
-            if (!data1.containsKey(key)) {
-                diff.add(new DiffNode(key, Status.ADDED, null, data2.get(key)));
-            } else if (!data2.containsKey(key)) {
-                diff.add(new DiffNode(key, Status.REMOVED, data1.get(key), null));
-            } else if (Objects.equals(data1.get(key), data2.get(key))) {
-                diff.add(new DiffNode(key, Status.UNCHANGED, data1.get(key), data2.get(key)));
+        return build(data1, data2, false);
+    }
+
+    /**
+     * Строит diff двух карт.
+     *
+     * <p>Ключи каждой стороны сортируются один раз (у {@link CompactObject} они уже отсортированы),
+     * после чего стороны сливаются за один линейный проход, как два отсортированных списка:
+     * значение берётся прямо из записи, без повторного поиска по ключу.</p>
+     *
+     * <p>Равенство значений проверяется через {@link StructuralHash#same}: поддеревья, разобранные
+     * {@code Parser}, сравниваются по готовому хешу за O(1), без обхода и без построения узлов.
+     * Если обе карты — {@link CompactObject}, значения сравниваются прямо в их массивах,
+     * и примитивы упаковываются только для узлов diff.
+     * В рекурсивном режиме ключ, значения которого на обеих сторонах — карты,
+     * получает статус {@link Status#NESTED} и список дочерних узлов, а ключ со списками
+     * на обеих сторонах — статус {@link Status#NESTED_LIST} и поэлементный diff ({@link ListDiff}).</p>
+     *
+     * @param data1     первая карта
+     * @param data2     вторая карта
+     * @param recursive спускаться ли во вложенные карты
+     * @return узлы diff в порядке ключей
+     */
+    public static List<DiffNode> build(Map<String, Object> data1, Map<String, Object> data2, boolean recursive) {
+        SortedEntries first = SortedEntries.of(data1);
+        SortedEntries second = SortedEntries.of(data2);
+        int size1 = first.size();
+        int size2 = second.size();
+
+        List<DiffNode> diff = new ArrayList<>(Math.max(size1, size2));
+
+        int i = 0;
+        int j = 0;
+        while (i < size1 && j < size2) {
+            String key1 = first.key(i);
+            String key2 = second.key(j);
+            int order = key1.compareTo(key2);
+            if (order < 0) {
+                diff.add(new DiffNode(key1, Status.REMOVED, first.value(i++), null));
+            } else if (order > 0) {
+                diff.add(new DiffNode(key2, Status.ADDED, null, second.value(j++)));
+            } else if (first.sameValue(i, second, j)) {
+                diff.add(new DiffNode(key1, Status.UNCHANGED, first.value(i++), second.value(j++)));
             } else {
-                diff.add(new DiffNode(key, Status.UPDATED, data1.get(key), data2.get(key)));
+                diff.add(changed(key1, first.value(i++), second.value(j++), recursive));
             }
         }
+        while (i < size1) {
+            diff.add(new DiffNode(first.key(i), Status.REMOVED, first.value(i++), null));
+        }
+        while (j < size2) {
+            diff.add(new DiffNode(second.key(j), Status.ADDED, null, second.value(j++)));
+        }
 
         return diff;
     }
+
+    /**
+     * Сравнивает значения ключа, который есть в обоих документах.
+     *
+     * @param key       ключ
+     * @param value1    старое значение
+     * @param value2    новое значение
+     * @param recursive спускаться ли во вложенные карты
+     * @return узел со статусом UNCHANGED, UPDATED, NESTED или NESTED_LIST
+     */
+    public static DiffNode compare(String key, Object value1, Object value2, boolean recursive) {
+        if (StructuralHash.same(value1, value2)) {
+            return new DiffNode(key, Status.UNCHANGED, value1, value2);
+        }
+        return changed(key, value1, value2, recursive);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DiffNode changed(String key, Object value1, Object value2, boolean recursive) {
+        if (recursive && value1 instanceof Map && value2 instanceof Map) {
+            List<DiffNode> children = build((Map<String, Object>) value1, (Map<String, Object>) value2, true);
+            return DiffNode.nested(key, children);
+        }
+        if (recursive && value1 instanceof List && value2 instanceof List) {
+            return ListDiff.diff(key, (List<?>) value1, (List<?>) value2);
+        }
+        return new DiffNode(key, Status.UPDATED, value1, value2);
+    }
+
+    /**
+     * Ключи и значения карты в порядке возрастания ключей.
+     */
+    abstract static class SortedEntries {
+
+        abstract int size();
+
+        abstract String key(int rank);
+
+        abstract Object value(int rank);
+
+        boolean sameValue(int rank, SortedEntries other, int otherRank) {
+            return StructuralHash.same(value(rank), other.value(otherRank));
+        }
+
+        @SuppressWarnings("unchecked")
+        static SortedEntries of(Map<String, Object> map) {
+            if (map instanceof CompactObject) {
+                return new CompactEntries((CompactObject) map);
+            }
+            // Записи HashMap/LinkedHashMap попадают в массив как есть, без копирования
+            Map.Entry<String, Object>[] entries = map.entrySet().toArray(new Map.Entry[0]);
+            Arrays.sort(entries, Map.Entry.comparingByKey());
+            return new EntryArray(entries);
+        }
+    }
+
+    private static final class EntryArray extends SortedEntries {
+
+        private final Map.Entry<String, Object>[] entries;
+
+        EntryArray(Map.Entry<String, Object>[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        int size() {
+            return entries.length;
+        }
+
+        @Override
+        String key(int rank) {
+            return entries[rank].getKey();
+        }
+
+        @Override
+        Object value(int rank) {
+            return entries[rank].getValue();
+        }
+    }
+
+    private static final class CompactEntries extends SortedEntries {
+
+        private final CompactObject object;
+
+        CompactEntries(CompactObject object) {
+            this.object = object;
+        }
+
+        @Override
+        int size() {
+            return object.size();
+        }
+
+        @Override
+        String key(int rank) {
+            return object.sortedKey(rank);
+        }
+
+        @Override
+        Object value(int rank) {
+            return object.sortedValue(rank);
+        }
+
+        @Override
+        boolean sameValue(int rank, SortedEntries other, int otherRank) {
+            if (other instanceof CompactEntries) {
+                return object.sameValue(rank, ((CompactEntries) other).object, otherRank);
+            }
+            return super.sameValue(rank, other, otherRank);
+        }
+    }
 }
@@ -1,9 +1,40 @@
 package hexlet.code.core;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
 public record DiffNode(
         String key,
         Status status,
         Object oldValue,
-        Object newValue
+        Object newValue,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<DiffNode> children
 ) {
+
+    public DiffNode(String key, Status status, Object oldValue, Object newValue) {
+        this(key, status, oldValue, newValue, null);
+    }
+
+    /**
+     * Создаёт узел для ключа, значения которого на обеих сторонах — объекты.
+     *
+     * @param key      ключ
+     * @param children различия внутри объекта
+     * @return узел со статусом {@link Status#NESTED}
+     */
+    public static DiffNode nested(String key, List<DiffNode> children) {
+        return new DiffNode(key, Status.NESTED, null, null, children);
+    }
+
+    /**
+     * Создаёт узел для ключа, значения которого на обеих сторонах — списки.
+     *
+     * @param key      ключ
+     * @param children изменившиеся элементы; их ключи — индексы вида {@code [3]}
+     * @return узел со статусом {@link Status#NESTED_LIST}
+     */
+    public static DiffNode nestedList(String key, List<DiffNode> children) {
+        return new DiffNode(key, Status.NESTED_LIST, null, null, children);
+    }
 }
@@ -0,0 +1,51 @@
+package hexlet.code.core;
+
+import java.io.IOException;
+
+/**
+ * Получатель узлов diff по мере их построения.
+ *
+ * <p>Обычный получатель принимает только готовые узлы: вложенный объект приходит одним узлом
+ * {@link Status#NESTED} со всеми дочерними. Получатель, у которого {@link #streamsNested()}
+ * возвращает {@code true}, принимает его по частям: {@link #startNested(String)}, дочерние узлы
+ * и {@link #endNested()}. Так потоковое сравнение не держит в памяти различия внутри объекта.</p>
+ */
+@FunctionalInterface
+public interface DiffSink {
+
+    /**
+     * Принимает очередной узел текущего уровня.
+     *
+     * @param node узел diff
+     * @throws IOException если узел не удалось записать
+     */
+    void write(DiffNode node) throws IOException;
+
+    /**
+     * Сообщает, принимает ли получатель вложенные объекты по частям.
+     *
+     * @return {@code true}, если {@link #startNested(String)} и {@link #endNested()} поддерживаются
+     */
+    default boolean streamsNested() {
+        return false;
+    }
+
+    /**
+     * Открывает вложенный объект: следующие узлы — его дочерние, до парного {@link #endNested()}.
+     *
+     * @param key ключ объекта
+     * @throws IOException если запись не удалась
+     */
+    default void startNested(String key) throws IOException {
+        throw new UnsupportedOperationException("Nested objects must be written as whole nodes");
+    }
+
+    /**
+     * Закрывает вложенный объект, открытый последним.
+     *
+     * @throws IOException если запись не удалась
+     */
+    default void endNested() throws IOException {
+        throw new UnsupportedOperationException("Nested objects must be written as whole nodes");
+    }
+}
@@ -0,0 +1,147 @@
+package hexlet.code.core;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Число узлов diff каждого статуса, включая вложенные.
+ *
+ * <p>{@link #of(Map, Map, boolean)} считает узлы тем же слиянием отсортированных ключей, что и
+ * {@link DiffBuilder#build(Map, Map, boolean)}, но не создаёт ни узлов, ни списка: неизменённые
+ * ключи только увеличивают счётчик. Объекты узлов появляются лишь для поэлементного diff списков.</p>
+ */
+public final class DiffStat {
+
+    private static final Status[] STATUSES = Status.values();
+
+    private final long[] counts = new long[STATUSES.length];
+
+    /**
+     * Считает узлы diff двух карт, не строя сам diff.
+     *
+     * @param data1     первая карта
+     * @param data2     вторая карта
+     * @param recursive спускаться ли во вложенные объекты и списки
+     * @return счётчики узлов
+     */
+    public static DiffStat of(Map<String, Object> data1, Map<String, Object> data2, boolean recursive) {
+        DiffStat stat = new DiffStat();
+        stat.merge(data1, data2, recursive);
+        return stat;
+    }
+
+    /**
+     * Учитывает узел и, рекурсивно, его дочерние узлы.
+     *
+     * @param node узел diff
+     */
+    public void add(DiffNode node) {
+        counts[node.status().ordinal()]++;
+        if (node.children() != null) {
+            addAll(node.children());
+        }
+    }
+
+    public void addAll(List<DiffNode> nodes) {
+        for (DiffNode node : nodes) {
+            add(node);
+        }
+    }
+
+    // Добавляет счётчики, набранные отдельно, например по вложенному объекту
+    void include(DiffStat other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public long count(Status status) {
+        return counts[status.ordinal()];
+    }
+
+    /**
+     * Проверяет, есть ли среди учтённых узлов хоть одно изменение.
+     *
+     * @return {@code true}, если есть узлы со статусом, отличным от {@link Status#UNCHANGED}
+     */
+    public boolean hasChanges() {
+        for (Status status : STATUSES) {
+            if (status != Status.UNCHANGED && counts[status.ordinal()] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает счётчики всех статусов, включая нулевые.
+     *
+     * @return карта в порядке объявления {@link Status}
+     */
+    public Map<Status, Long> toMap() {
+        Map<Status, Long> map = new EnumMap<>(Status.class);
+        for (Status status : STATUSES) {
+            map.put(status, counts[status.ordinal()]);
+        }
+        return map;
+    }
+
+    /**
+     * Возвращает счётчики одной строкой, например {@code added 1, removed 2, unchanged 1, updated 1}.
+     * Статусы вложенных узлов выводятся, только если такие узлы есть.
+     *
+     * @return сводка
+     */
+    @Override
+    public String toString() {
+        StringJoiner text = new StringJoiner(", ");
+        for (Status status : STATUSES) {
+            long count = counts[status.ordinal()];
+            if (count > 0 || (status != Status.NESTED && status != Status.NESTED_LIST)) {
+                text.add(status.name().toLowerCase(Locale.ROOT) + " " + count);
+            }
+        }
+        return text.toString();
+    }
+
+    private void merge(Map<String, Object> data1, Map<String, Object> data2, boolean recursive) {
+        DiffBuilder.SortedEntries first = DiffBuilder.SortedEntries.of(data1);
+        DiffBuilder.SortedEntries second = DiffBuilder.SortedEntries.of(data2);
+        int size1 = first.size();
+        int size2 = second.size();
+
+        int i = 0;
+        int j = 0;
+        while (i < size1 && j < size2) {
+            int order = first.key(i).compareTo(second.key(j));
+            if (order < 0) {
+                counts[Status.REMOVED.ordinal()]++;
+                i++;
+            } else if (order > 0) {
+                counts[Status.ADDED.ordinal()]++;
+                j++;
+            } else {
+                compare(first.value(i++), second.value(j++), recursive);
+            }
+        }
+        counts[Status.REMOVED.ordinal()] += size1 - i;
+        counts[Status.ADDED.ordinal()] += size2 - j;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compare(Object value1, Object value2, boolean recursive) {
+        if (StructuralHash.same(value1, value2)) {
+            counts[Status.UNCHANGED.ordinal()]++;
+        } else if (recursive && value1 instanceof Map && value2 instanceof Map) {
+            counts[Status.NESTED.ordinal()]++;
+            merge((Map<String, Object>) value1, (Map<String, Object>) value2, true);
+        } else if (recursive && value1 instanceof List && value2 instanceof List) {
+            add(ListDiff.diff(null, (List<?>) value1, (List<?>) value2));
+        } else {
+            counts[Status.UPDATED.ordinal()]++;
+        }
+    }
+}
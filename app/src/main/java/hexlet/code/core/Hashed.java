@@ -0,0 +1,16 @@
+package hexlet.code.core;
+
+/**
+ * Значение, для которого структурный хеш вычислен заранее (обычно при разборе документа).
+ *
+ * @see StructuralHash
+ */
+public interface Hashed {
+
+    /**
+     * Возвращает структурный хеш значения.
+     *
+     * @return 64-битный хеш содержимого
+     */
+    long structuralHash();
+}
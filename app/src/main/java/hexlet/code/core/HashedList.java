@@ -0,0 +1,35 @@
+package hexlet.code.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ArrayList}, запоминающий свой структурный хеш после первого вычисления.
+ *
+ * @see HashedMap
+ */
+public final class HashedList extends ArrayList<Object> implements Hashed {
+
+    private long hash;
+    private boolean hashed;
+
+    @Override
+    public long structuralHash() {
+        if (!hashed) {
+            hash = StructuralHash.ofList(this);
+            hashed = true;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof List && StructuralHash.same(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        // Из структурного хеша, как и equals: у byte[] собственный hashCode зависит от ссылки
+        return Long.hashCode(structuralHash());
+    }
+}
@@ -0,0 +1,37 @@
+package hexlet.code.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link LinkedHashMap}, запоминающий свой структурный хеш после первого вычисления.
+ *
+ * <p>Парсер заполняет карту и сразу запрашивает хеш, поэтому хеши поддеревьев
+ * считаются один раз, снизу вверх. Изменять карту после этого нельзя:
+ * сохранённый хеш перестанет соответствовать содержимому.</p>
+ */
+public final class HashedMap extends LinkedHashMap<String, Object> implements Hashed {
+
+    private long hash;
+    private boolean hashed;
+
+    @Override
+    public long structuralHash() {
+        if (!hashed) {
+            hash = StructuralHash.ofMap(this);
+            hashed = true;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Map && StructuralHash.same(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        // Из структурного хеша, как и equals: у byte[] собственный hashCode зависит от ссылки
+        return Long.hashCode(structuralHash());
+    }
+}
@@ -0,0 +1,185 @@
+package hexlet.code.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Перестраивает diff после изменения одного из документов, переиспользуя узлы прежнего diff.
+ *
+ * <p>Сначала определяются ключи, значения которых изменились хотя бы на одной стороне: новый документ
+ * сравнивается с прежним по ключам, и изменившиеся поддеревья отличаются по структурному хешу за O(1).
+ * Затем перестраиваются только узлы этих ключей — место узла в прежнем diff находится двоичным поиском,
+ * остальные узлы переиспользуются без сравнения. Во вложенном объекте, изменившемся лишь частично,
+ * так же перестраиваются только затронутые ветви. Результат совпадает с
+ * {@link DiffBuilder#build(Map, Map, boolean)} для новых документов.</p>
+ */
+public final class IncrementalDiffBuilder {
+
+    private IncrementalDiffBuilder() {
+    }
+
+    /**
+     * Строит diff новых документов, используя прежний diff.
+     *
+     * @param previous1 первый документ, по которому строился прежний diff
+     * @param previous2 второй документ, по которому строился прежний diff
+     * @param previous  прежний diff, узлы в порядке ключей
+     * @param data1     новый первый документ (может быть тем же объектом, что {@code previous1})
+     * @param data2     новый второй документ (может быть тем же объектом, что {@code previous2})
+     * @param recursive спускаться ли во вложенные объекты и списки
+     * @return узлы diff в порядке ключей; сам {@code previous}, если ни один узел не изменился
+     */
+    public static List<DiffNode> rebuild(Map<String, Object> previous1, Map<String, Object> previous2,
+                                         List<DiffNode> previous, Map<String, Object> data1,
+                                         Map<String, Object> data2, boolean recursive) {
+        SortedSet<String> changed = changedKeys(previous1, data1);
+        changed.addAll(changedKeys(previous2, data2));
+        return rebuild(previous1, previous2, previous, data1, data2, recursive, changed);
+    }
+
+    /**
+     * Перестраивает узлы указанных ключей, остальные берёт из прежнего diff как есть.
+     *
+     * @param previous1 первый документ, по которому строился прежний diff
+     * @param previous2 второй документ, по которому строился прежний diff
+     * @param previous  прежний diff, узлы в порядке ключей
+     * @param data1     новый первый документ
+     * @param data2     новый второй документ
+     * @param recursive спускаться ли во вложенные объекты и списки
+     * @param changed   ключи, значения которых изменились хотя бы в одном документе
+     * @return узлы diff в порядке ключей; сам {@code previous}, если ни один узел не изменился
+     */
+    public static List<DiffNode> rebuild(Map<String, Object> previous1, Map<String, Object> previous2,
+                                         List<DiffNode> previous, Map<String, Object> data1,
+                                         Map<String, Object> data2, boolean recursive, Collection<String> changed) {
+        List<DiffNode> diff = previous;
+        for (String key : changed) {
+            int index = indexOf(diff, key);
+            DiffNode before = index >= 0 ? diff.get(index) : null;
+            DiffNode after = node(previous1, previous2, before, key, data1, data2, recursive);
+            if (after == before) {
+                continue;
+            }
+            if (diff == previous) {
+                diff = new ArrayList<>(previous);
+            }
+            if (after == null) {
+                diff.remove(index);
+            } else if (before == null) {
+                diff.add(-index - 1, after);
+            } else {
+                diff.set(index, after);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Находит ключи, которые есть только в одном из документов или значения которых различаются.
+     *
+     * @param before прежний документ
+     * @param after  новый документ
+     * @return изменившиеся ключи по возрастанию
+     */
+    public static SortedSet<String> changedKeys(Map<String, Object> before, Map<String, Object> after) {
+        SortedSet<String> changed = new TreeSet<>();
+        if (before == after) {
+            return changed;
+        }
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            String key = entry.getKey();
+            if (!before.containsKey(key) || !StructuralHash.same(before.get(key), entry.getValue())) {
+                changed.add(key);
+            }
+        }
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    private static int indexOf(List<DiffNode> diff, String key) {
+        int low = 0;
+        int high = diff.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = diff.get(middle).key().compareTo(key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static DiffNode node(Map<String, Object> previous1, Map<String, Object> previous2, DiffNode before,
+                                 String key, Map<String, Object> data1, Map<String, Object> data2,
+                                 boolean recursive) {
+        boolean inFirst = data1.containsKey(key);
+        boolean inSecond = data2.containsKey(key);
+        if (inFirst && inSecond) {
+            return compare(previous1, previous2, before, key, data1.get(key), data2.get(key), recursive);
+        }
+        if (inFirst) {
+            Object value = data1.get(key);
+            return before != null && before.status() == Status.REMOVED && StructuralHash.same(before.oldValue(), value)
+                    ? before
+                    : new DiffNode(key, Status.REMOVED, value, null);
+        }
+        if (inSecond) {
+            Object value = data2.get(key);
+            return before != null && before.status() == Status.ADDED && StructuralHash.same(before.newValue(), value)
+                    ? before
+                    : new DiffNode(key, Status.ADDED, null, value);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DiffNode compare(Map<String, Object> previous1, Map<String, Object> previous2, DiffNode before,
+                                    String key, Object value1, Object value2, boolean recursive) {
+        if (before == null) {
+            return DiffBuilder.compare(key, value1, value2, recursive);
+        }
+        switch (before.status()) {
+            case UNCHANGED, UPDATED -> {
+                if (StructuralHash.same(before.oldValue(), value1) && StructuralHash.same(before.newValue(), value2)) {
+                    return before;
+                }
+            }
+            case NESTED -> {
+                // У NESTED значения не хранятся: сравниваем с прежними документами
+                Object old1 = previous1.get(key);
+                Object old2 = previous2.get(key);
+                if (StructuralHash.same(old1, value1) && StructuralHash.same(old2, value2)) {
+                    return before;
+                }
+                if (value1 instanceof Map && value2 instanceof Map && old1 instanceof Map && old2 instanceof Map
+                        && !StructuralHash.same(value1, value2)) {
+                    List<DiffNode> children = rebuild((Map<String, Object>) old1, (Map<String, Object>) old2,
+                            before.children(), (Map<String, Object>) value1, (Map<String, Object>) value2, true);
+                    return DiffNode.nested(key, children);
+                }
+            }
+            case NESTED_LIST -> {
+                if (StructuralHash.same(previous1.get(key), value1)
+                        && StructuralHash.same(previous2.get(key), value2)) {
+                    return before;
+                }
+            }
+            default -> {
+                // Ключ был только с одной стороны: сравниваем заново
+            }
+        }
+        return DiffBuilder.compare(key, value1, value2, recursive);
+    }
+}
@@ -0,0 +1,290 @@
+package hexlet.code.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Накладывает JSON Patch (RFC 6902) на документ.
+ *
+ * <p>Патч читается из парсера по одной операции: в памяти держится только текущая операция,
+ * и время наложения растёт с размером патча, а не документа. Поддерживаются все операции
+ * стандарта: {@code add}, {@code remove}, {@code replace}, {@code move}, {@code copy} и {@code test}.</p>
+ *
+ * <p>Документ изменяется на месте, поэтому его объекты и списки должны быть изменяемыми и не должны
+ * запоминать свой хеш: {@link HashedMap} после изменения сравнивался бы неверно. Такой документ даёт
+ * {@link hexlet.code.parser.Parser#parseMutable}.</p>
+ */
+public final class JsonPatch {
+
+    // RFC 6901: индекс элемента — десятичное число без ведущих нулей
+    private static final Pattern INDEX = Pattern.compile("0|[1-9][0-9]*");
+    private static final int MAX_INDEX_DIGITS = 18;
+
+    private JsonPatch() {
+    }
+
+    private record Operation(int number, String op, String path, String from, Object value, boolean hasValue) {
+    }
+
+    /**
+     * Накладывает патч на документ.
+     *
+     * @param document изменяемый документ
+     * @param patch    парсер патча, ещё не прочитавший ни одного токена
+     * @return изменённый документ; другой объект, только если патч заменил корень
+     * @throws IOException              если патч не удалось прочитать
+     * @throws IllegalArgumentException если патч некорректен или не подходит к документу
+     */
+    public static Map<String, Object> apply(Map<String, Object> document, JsonParser patch) throws IOException {
+        if (patch.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Expected an array of operations in the patch");
+        }
+        Map<String, Object> result = document;
+        int number = 0;
+        for (JsonToken token = patch.nextToken(); token != JsonToken.END_ARRAY; token = patch.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an operation object in the patch, got " + token);
+            }
+            result = apply(result, readOperation(patch, ++number));
+        }
+        return result;
+    }
+
+    private static Operation readOperation(JsonParser parser, int number) throws IOException {
+        String op = null;
+        String path = null;
+        String from = null;
+        Object value = null;
+        boolean hasValue = false;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_OBJECT; token = parser.nextToken()) {
+            if (token == null) {
+                throw new IllegalArgumentException("Unexpected end of the patch");
+            }
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "op" -> op = parser.getValueAsString();
+                case "path" -> path = parser.getValueAsString();
+                case "from" -> from = parser.getValueAsString();
+                case "value" -> {
+                    // Обычные LinkedHashMap и ArrayList: значение может измениться следующими операциями
+                    value = parser.readValueAs(Object.class);
+                    hasValue = true;
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        Operation operation = new Operation(number, op, path, from, value, hasValue);
+        if (op == null || path == null) {
+            throw failure(operation, "'op' and 'path' are required");
+        }
+        return operation;
+    }
+
+    private static Map<String, Object> apply(Map<String, Object> document, Operation operation) {
+        switch (operation.op()) {
+            case "add" -> {
+                return add(document, operation.path(), requireValue(operation), operation);
+            }
+            case "remove" -> {
+                remove(document, operation.path(), operation);
+                return document;
+            }
+            case "replace" -> {
+                Object value = requireValue(operation);
+                if (operation.path().isEmpty()) {
+                    return root(value, operation);
+                }
+                replace(document, operation.path(), value, operation);
+                return document;
+            }
+            case "move" -> {
+                String from = requireFrom(operation);
+                if (operation.path().startsWith(from + "/")) {
+                    throw failure(operation, "cannot move a value into itself");
+                }
+                if (from.equals(operation.path())) {
+                    return document;
+                }
+                return add(document, operation.path(), remove(document, from, operation), operation);
+            }
+            case "copy" -> {
+                Object value = copy(resolve(document, requireFrom(operation), operation));
+                return add(document, operation.path(), value, operation);
+            }
+            case "test" -> {
+                // RFC 6902: числа равны по значению, объекты — независимо от порядка ключей
+                Object actual = resolve(document, operation.path(), operation);
+                if (!StructuralHash.sameJson(actual, requireValue(operation))) {
+                    throw failure(operation, "test failed");
+                }
+                return document;
+            }
+            default -> throw failure(operation, "unknown operation");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> add(Map<String, Object> document, String path, Object value,
+                                           Operation operation) {
+        if (path.isEmpty()) {
+            return root(value, operation);
+        }
+        List<String> tokens = tokens(path, operation);
+        Object parent = walk(document, tokens, operation);
+        String last = tokens.get(tokens.size() - 1);
+        if (parent instanceof Map) {
+            ((Map<String, Object>) parent).put(last, value);
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            list.add("-".equals(last) ? list.size() : index(list, last, true, operation), value);
+        } else {
+            throw failure(operation, "parent of '" + path + "' is not an object or a list");
+        }
+        return document;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object remove(Map<String, Object> document, String path, Operation operation) {
+        if (path.isEmpty()) {
+            throw failure(operation, "cannot remove the document root");
+        }
+        List<String> tokens = tokens(path, operation);
+        Object parent = walk(document, tokens, operation);
+        String last = tokens.get(tokens.size() - 1);
+        if (parent instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) parent;
+            if (!map.containsKey(last)) {
+                throw failure(operation, "no value at '" + path + "'");
+            }
+            return map.remove(last);
+        }
+        if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            return list.remove(index(list, last, false, operation));
+        }
+        throw failure(operation, "parent of '" + path + "' is not an object or a list");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void replace(Map<String, Object> document, String path, Object value, Operation operation) {
+        List<String> tokens = tokens(path, operation);
+        Object parent = walk(document, tokens, operation);
+        String last = tokens.get(tokens.size() - 1);
+        if (parent instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) parent;
+            if (!map.containsKey(last)) {
+                throw failure(operation, "no value at '" + path + "'");
+            }
+            map.put(last, value);
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            list.set(index(list, last, false, operation), value);
+        } else {
+            throw failure(operation, "parent of '" + path + "' is not an object or a list");
+        }
+    }
+
+    private static Object resolve(Map<String, Object> document, String path, Operation operation) {
+        if (path.isEmpty()) {
+            return document;
+        }
+        List<String> tokens = tokens(path, operation);
+        return child(walk(document, tokens, operation), tokens.get(tokens.size() - 1), operation);
+    }
+
+    // Проходит по всем сегментам пути, кроме последнего, и возвращает родителя целевого значения
+    private static Object walk(Map<String, Object> document, List<String> tokens, Operation operation) {
+        Object current = document;
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            current = child(current, tokens.get(i), operation);
+        }
+        return current;
+    }
+
+    private static Object child(Object parent, String token, Operation operation) {
+        if (parent instanceof Map<?, ?> map) {
+            if (!map.containsKey(token)) {
+                throw failure(operation, "no key '" + token + "'");
+            }
+            return map.get(token);
+        }
+        if (parent instanceof List<?> list) {
+            return list.get(index(list, token, false, operation));
+        }
+        throw failure(operation, "'" + token + "' is not inside an object or a list");
+    }
+
+    private static int index(List<?> list, String token, boolean forInsert, Operation operation) {
+        if (!INDEX.matcher(token).matches()) {
+            throw failure(operation, "'" + token + "' is not a list index");
+        }
+        int limit = forInsert ? list.size() : list.size() - 1;
+        if (token.length() > MAX_INDEX_DIGITS || Long.parseLong(token) > limit) {
+            throw failure(operation, "index " + token + " is out of bounds");
+        }
+        return Integer.parseInt(token);
+    }
+
+    private static List<String> tokens(String path, Operation operation) {
+        if (!path.startsWith("/")) {
+            throw failure(operation, "path must be empty or start with '/'");
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : path.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> root(Object value, Operation operation) {
+        if (!(value instanceof Map)) {
+            throw failure(operation, "the document root must be an object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            ((Map<String, Object>) value).forEach((key, element) -> copy.put(key, copy(element)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(copy(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static Object requireValue(Operation operation) {
+        if (!operation.hasValue()) {
+            throw failure(operation, "'value' is required");
+        }
+        return operation.value();
+    }
+
+    private static String requireFrom(Operation operation) {
+        if (operation.from() == null) {
+            throw failure(operation, "'from' is required");
+        }
+        return operation.from();
+    }
+
+    private static IllegalArgumentException failure(Operation operation, String reason) {
+        return new IllegalArgumentException("Patch operation " + operation.number() + " (" + operation.op() + " "
+                + operation.path() + "): " + reason);
+    }
+}
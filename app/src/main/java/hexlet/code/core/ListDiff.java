@@ -0,0 +1,236 @@
+package hexlet.code.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поэлементный diff двух списков.
+ *
+ * <p>Элементы сравниваются по структурным хешам ({@link StructuralHash}), поэтому равенство проверяется
+ * за O(1) на элемент.
+ * Общие начало и конец списков отбрасываются линейным проходом; оставшаяся середина выравнивается
+ * алгоритмом Майерса (кратчайший сценарий правок, O((N + M) · D)). Если правок больше
+ * {@link #MAX_EDITS}, середина целиком считается заменённой — так время и память остаются ограниченными.</p>
+ *
+ * <p>В результат попадают только изменившиеся элементы: неизменённые пропускаются, и размер diff
+ * растёт с числом правок, а не с длиной списка. Ключ элемента — его индекс в квадратных скобках:
+ * для удалённого — индекс в старом списке, для добавленного и изменённого — в новом.
+ * Удаление и вставка на одном месте объединяются в изменение элемента: для объектов и списков
+ * оно раскрывается рекурсивно, как в {@link DiffBuilder#compare}.</p>
+ */
+final class ListDiff {
+
+    /** Предел числа правок для алгоритма Майерса; память на восстановление пути — O(D²). */
+    static final int MAX_EDITS = 1024;
+
+    private static final byte EQUAL = 0;
+    private static final byte DELETE = 1;
+    private static final byte INSERT = 2;
+
+    private final List<?> oldList;
+    private final List<?> newList;
+    private final long[] oldHashes;
+    private final long[] newHashes;
+    private final List<DiffNode> children = new ArrayList<>();
+
+    // Правки текущего участка между совпадающими элементами, индексы в старом и новом списке
+    private int[] deleted = new int[8];
+    private int[] inserted = new int[8];
+    private int deletedCount;
+    private int insertedCount;
+
+    private ListDiff(List<?> oldList, List<?> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+        this.oldHashes = hashes(oldList);
+        this.newHashes = hashes(newList);
+    }
+
+    /**
+     * Строит поэлементный diff двух списков.
+     *
+     * @param key     ключ, под которым списки лежат в документе
+     * @param oldList старый список
+     * @param newList новый список
+     * @return узел со статусом {@link Status#NESTED_LIST}
+     */
+    static DiffNode diff(String key, List<?> oldList, List<?> newList) {
+        ListDiff diff = new ListDiff(oldList, newList);
+        diff.align();
+        return DiffNode.nestedList(key, diff.children);
+    }
+
+    private void align() {
+        int oldEnd = oldHashes.length;
+        int newEnd = newHashes.length;
+
+        int start = 0;
+        while (start < oldEnd && start < newEnd && equal(start, start)) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start && equal(oldEnd - 1, newEnd - 1)) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        if (start == oldEnd || start == newEnd) {
+            // Отличается только вставкой или только удалением: выравнивать нечего
+            addRange(start, oldEnd, start, newEnd);
+        } else if (!myers(start, oldEnd, start, newEnd)) {
+            addRange(start, oldEnd, start, newEnd);
+        }
+        flush();
+    }
+
+    private void addRange(int oldFrom, int oldTo, int newFrom, int newTo) {
+        for (int i = oldFrom; i < oldTo; i++) {
+            delete(i);
+        }
+        for (int j = newFrom; j < newTo; j++) {
+            insert(j);
+        }
+    }
+
+    /**
+     * Выравнивает участки списков алгоритмом Майерса и записывает правки.
+     *
+     * @param oldFrom начало участка старого списка
+     * @param oldTo   конец участка старого списка (не включительно)
+     * @param newFrom начало участка нового списка
+     * @param newTo   конец участка нового списка (не включительно)
+     * @return {@code false}, если правок больше {@link #MAX_EDITS} и ничего не записано
+     */
+    private boolean myers(int oldFrom, int oldTo, int newFrom, int newTo) {
+        int n = oldTo - oldFrom;
+        int m = newTo - newFrom;
+        int limit = Math.min(n + m, MAX_EDITS);
+        int offset = limit + 1;
+        int[] v = new int[2 * limit + 3];
+        // trace[d] — состояние v перед шагом d на диагоналях от -d - 1 до d + 1
+        int[][] trace = new int[limit + 1][];
+
+        int edits = -1;
+        for (int d = 0; d <= limit && edits < 0; d++) {
+            trace[d] = new int[2 * d + 3];
+            System.arraycopy(v, offset - d - 1, trace[d], 0, 2 * d + 3);
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && v[offset + k - 1] < v[offset + k + 1]
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && equal(oldFrom + x, newFrom + y)) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    edits = d;
+                    break;
+                }
+            }
+        }
+        if (edits < 0) {
+            return false;
+        }
+
+        // Путь восстанавливается с конца; правки собираются в обратном порядке и затем разворачиваются
+        byte[] ops = new byte[n + m];
+        int[] indices = new int[n + m];
+        int count = 0;
+        int x = n;
+        int y = m;
+        for (int d = edits; d >= 0; d--) {
+            int[] previous = trace[d];
+            int k = x - y;
+            int previousK = k == -d || k != d && previous[k + d] < previous[k + d + 2] ? k + 1 : k - 1;
+            int previousX = d == 0 ? 0 : previous[previousK + d + 1];
+            int previousY = d == 0 ? 0 : previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                ops[count] = EQUAL;
+                indices[count++] = y;
+            }
+            if (d > 0) {
+                if (x == previousX) {
+                    ops[count] = INSERT;
+                    indices[count++] = previousY;
+                } else {
+                    ops[count] = DELETE;
+                    indices[count++] = previousX;
+                }
+            }
+            x = previousX;
+            y = previousY;
+        }
+
+        for (int i = count - 1; i >= 0; i--) {
+            switch (ops[i]) {
+                case DELETE -> delete(oldFrom + indices[i]);
+                case INSERT -> insert(newFrom + indices[i]);
+                default -> flush();
+            }
+        }
+        return true;
+    }
+
+    private boolean equal(int oldIndex, int newIndex) {
+        return oldHashes[oldIndex] == newHashes[newIndex];
+    }
+
+    private void delete(int oldIndex) {
+        if (deletedCount == deleted.length) {
+            deleted = Arrays.copyOf(deleted, deletedCount * 2);
+        }
+        deleted[deletedCount++] = oldIndex;
+    }
+
+    private void insert(int newIndex) {
+        if (insertedCount == inserted.length) {
+            inserted = Arrays.copyOf(inserted, insertedCount * 2);
+        }
+        inserted[insertedCount++] = newIndex;
+    }
+
+    /**
+     * Превращает накопленные удаления и вставки участка в узлы: пары — в изменения элементов,
+     * остаток — в удалённые или добавленные элементы.
+     */
+    private void flush() {
+        int pairs = Math.min(deletedCount, insertedCount);
+        for (int i = 0; i < pairs; i++) {
+            Object oldValue = oldList.get(deleted[i]);
+            Object newValue = newList.get(inserted[i]);
+            children.add(DiffBuilder.compare(elementKey(inserted[i]), oldValue, newValue, true));
+        }
+        for (int i = pairs; i < deletedCount; i++) {
+            children.add(new DiffNode(elementKey(deleted[i]), Status.REMOVED, oldList.get(deleted[i]), null));
+        }
+        for (int i = pairs; i < insertedCount; i++) {
+            children.add(new DiffNode(elementKey(inserted[i]), Status.ADDED, null, newList.get(inserted[i])));
+        }
+        deletedCount = 0;
+        insertedCount = 0;
+    }
+
+    private static String elementKey(int index) {
+        return "[" + index + "]";
+    }
+
+    private static long[] hashes(List<?> list) {
+        long[] hashes = new long[list.size()];
+        if (list instanceof CompactArray) {
+            CompactArray array = (CompactArray) list;
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = array.elementHash(i);
+            }
+        } else {
+            int i = 0;
+            for (Object element : list) {
+                hashes[i++] = StructuralHash.of(element);
+            }
+        }
+        return hashes;
+    }
+}
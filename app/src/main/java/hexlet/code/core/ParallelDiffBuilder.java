@@ -0,0 +1,156 @@
+package hexlet.code.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Строит diff в {@link ForkJoinPool}, разбивая отсортированные ключи на диапазоны.
+ *
+ * <p>Результаты диапазонов склеиваются слева направо, поэтому порядок узлов тот же,
+ * что у {@link DiffBuilder}. Большие вложенные объекты в рекурсивном режиме
+ * тоже сравниваются отдельными задачами в том же пуле.</p>
+ */
+public final class ParallelDiffBuilder {
+
+    /** Число ключей, ниже которого задача не делится и выполняется последовательно. */
+    private static final int SEQUENTIAL_THRESHOLD = 2048;
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private ParallelDiffBuilder() {
+    }
+
+    /**
+     * Строит diff двух карт с заданным уровнем параллелизма.
+     *
+     * @param data1       первая карта
+     * @param data2       вторая карта
+     * @param recursive   спускаться ли во вложенные карты
+     * @param parallelism число потоков; при значении 1 и меньше diff строится последовательно
+     * @return узлы diff в порядке ключей
+     */
+    public static List<DiffNode> build(Map<String, Object> data1, Map<String, Object> data2,
+                                       boolean recursive, int parallelism) {
+        if (parallelism <= 1) {
+            return DiffBuilder.build(data1, data2, recursive);
+        }
+        return pool(parallelism).invoke(new MapTask(data1, data2, recursive));
+    }
+
+    /**
+     * Возвращает пул с заданным параллелизмом, общий для всех вызовов.
+     *
+     * <p>В пакетном режиме и в демоне diff строится много раз с одним и тем же параллелизмом,
+     * и новый пул на каждый вызов означал бы новые потоки на каждый diff. Пулы не закрываются:
+     * простаивающие рабочие потоки завершаются сами, а сами потоки пула — демоны.</p>
+     *
+     * @param parallelism число потоков, больше единицы
+     * @return общий пул {@link ForkJoinPool#commonPool()}, если его параллелизм совпадает, иначе свой
+     */
+    static ForkJoinPool pool(int parallelism) {
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            return ForkJoinPool.commonPool();
+        }
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    private static final class MapTask extends RecursiveTask<List<DiffNode>> {
+
+        private final Map<String, Object> data1;
+        private final Map<String, Object> data2;
+        private final boolean recursive;
+
+        MapTask(Map<String, Object> data1, Map<String, Object> data2, boolean recursive) {
+            this.data1 = data1;
+            this.data2 = data2;
+            this.recursive = recursive;
+        }
+
+        @Override
+        protected List<DiffNode> compute() {
+            if (data1.size() + data2.size() <= SEQUENTIAL_THRESHOLD) {
+                return DiffBuilder.build(data1, data2, recursive);
+            }
+            String[] keys = sortedKeys();
+            return new RangeTask(this, keys, 0, keys.length).compute();
+        }
+
+        private String[] sortedKeys() {
+            String[] keys = new String[data1.size() + data2.size()];
+            int size = 0;
+            for (String key : data1.keySet()) {
+                keys[size++] = key;
+            }
+            for (String key : data2.keySet()) {
+                if (!data1.containsKey(key)) {
+                    keys[size++] = key;
+                }
+            }
+            keys = Arrays.copyOf(keys, size);
+            // Вызов из рабочего потока: сортировка выполняется в этом же пуле
+            Arrays.parallelSort(keys);
+            return keys;
+        }
+    }
+
+    private static final class RangeTask extends RecursiveTask<List<DiffNode>> {
+
+        private final MapTask maps;
+        private final String[] keys;
+        private final int from;
+        private final int to;
+
+        RangeTask(MapTask maps, String[] keys, int from, int to) {
+            this.maps = maps;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<DiffNode> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return computeSequentially();
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(maps, keys, from, middle);
+            left.fork();
+            List<DiffNode> right = new RangeTask(maps, keys, middle, to).compute();
+
+            // Левая половина — свой ArrayList этой задачи, дописываем в него правую
+            List<DiffNode> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+
+        private List<DiffNode> computeSequentially() {
+            List<DiffNode> diff = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                String key = keys[i];
+                if (!maps.data1.containsKey(key)) {
+                    diff.add(new DiffNode(key, Status.ADDED, null, maps.data2.get(key)));
+                } else if (!maps.data2.containsKey(key)) {
+                    diff.add(new DiffNode(key, Status.REMOVED, maps.data1.get(key), null));
+                } else {
+                    diff.add(compare(key, maps.data1.get(key), maps.data2.get(key)));
+                }
+            }
+            return diff;
+        }
+
+        @SuppressWarnings("unchecked")
+        private DiffNode compare(String key, Object value1, Object value2) {
+            if (maps.recursive && value1 instanceof Map && value2 instanceof Map
+                    && !StructuralHash.same(value1, value2)) {
+                MapTask child = new MapTask((Map<String, Object>) value1, (Map<String, Object>) value2, true);
+                return DiffNode.nested(key, child.invoke());
+            }
+            return DiffBuilder.compare(key, value1, value2, maps.recursive);
+        }
+    }
+}
@@ -4,5 +4,7 @@ public enum Status {
     ADDED,
     REMOVED,
     UNCHANGED,
-    UPDATED
+    UPDATED,
+    NESTED,
+    NESTED_LIST
 }
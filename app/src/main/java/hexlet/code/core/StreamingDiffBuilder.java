@@ -0,0 +1,786 @@
+package hexlet.code.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import hexlet.code.parser.Parser;
+import hexlet.code.parser.SortedRecords;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Строит diff двух документов, читая их как потоки токенов Jackson.
+ *
+ * <p>В отличие от {@link DiffBuilder}, документы целиком в память не загружаются: оба парсера
+ * продвигаются одновременно, и ключи каждого объекта сливаются как два отсортированных списка.
+ * Поэтому ключи всех объектов в обоих документах должны идти в порядке возрастания без повторов;
+ * иначе бросается {@link IllegalStateException}. Произвольный файл к такому виду приводит
+ * {@link hexlet.code.parser.SortedKeys}.</p>
+ *
+ * <p>В рекурсивном режиме в объект, который есть на обеих сторонах, сравнение спускается, не загружая
+ * его: на каждый уровень вложенности в стеке лежит по два открытых объекта, а получатель с
+ * {@link DiffSink#streamsNested()} получает его различия по частям. Целиком загружается только
+ * значение, которое нужно узлу: скаляр, список (для поэлементного diff) или объект, который есть
+ * лишь на одной стороне. Поэтому память ограничена глубиной вложенности и самым большим таким
+ * значением, а не размером документа. Узлы объекта придерживаются, пока в нём нет различий: совпавший
+ * объект, как и в {@link DiffBuilder}, выводится одним узлом {@link Status#UNCHANGED} со значением
+ * целиком, поэтому в память попадает и самый большой совпавший объект. В нерекурсивном режиме узел
+ * несёт значение верхнего уровня, так что в памяти держится самое большое из них.</p>
+ *
+ * <p>С исполнителем ({@link #build(JsonParser, JsonParser, boolean, Executor, DiffSink)}) в нерекурсивном
+ * режиме каждый документ читается в своей задаче и передаётся на слияние пачками через ограниченную
+ * очередь: чтение и разбор обеих сторон идут параллельно, и время приближается ко времени более
+ * медленной стороны. Зато каждая сторона держит в памяти до {@code (QUEUE_CHUNKS + 2) * CHUNK_SIZE}
+ * (1536) значений верхнего уровня: пачки в очереди, пачку, которую заполняет читатель, и пачку,
+ * которую разбирает слияние.</p>
+ */
+public final class StreamingDiffBuilder {
+
+    /** Число пар ключ–значение в пачке, передаваемой читателем на слияние. */
+    private static final int CHUNK_SIZE = 256;
+    /** Сколько пачек читатель может опередить слияние. */
+    private static final int QUEUE_CHUNKS = 4;
+    private static final long OFFER_TIMEOUT_MILLIS = 50;
+
+    private StreamingDiffBuilder() {
+    }
+
+    /**
+     * Сравнивает два документа и передаёт узлы diff в {@code sink} в порядке ключей.
+     *
+     * @param first  парсер первого документа, ещё не прочитавший ни одного токена
+     * @param second парсер второго документа, ещё не прочитавший ни одного токена
+     * @param sink   получатель узлов diff
+     * @throws IOException если не удалось прочитать один из документов
+     */
+    public static void build(JsonParser first, JsonParser second, DiffSink sink) throws IOException {
+        build(first, second, false, sink);
+    }
+
+    /**
+     * Сравнивает два документа и передаёт узлы diff в {@code sink} в порядке ключей.
+     *
+     * <p>Если {@code sink} не принимает вложенные объекты по частям, узел {@link Status#NESTED}
+     * собирается целиком и передаётся, когда объект закончится.</p>
+     *
+     * @param first     парсер первого документа, ещё не прочитавший ни одного токена
+     * @param second    парсер второго документа, ещё не прочитавший ни одного токена
+     * @param recursive спускаться ли во вложенные объекты (см. {@link DiffBuilder#compare})
+     * @param sink      получатель узлов diff
+     * @throws IOException если не удалось прочитать один из документов
+     */
+    public static void build(JsonParser first, JsonParser second, boolean recursive,
+                             DiffSink sink) throws IOException {
+        walk(ObjectReader.root(first), ObjectReader.root(second), recursive, true, new Output(sink, true));
+    }
+
+    /**
+     * Сравнивает два документа, в нерекурсивном режиме читая каждый в отдельной задаче {@code executor}.
+     *
+     * <p>Парсеры используются только задачами-читателями; к моменту возврата обе задачи завершены,
+     * и парсеры можно закрывать. {@code sink} вызывается в потоке вызывающего. В рекурсивном режиме
+     * читатель не знает заранее, в какие объекты спустится слияние, поэтому оба документа читаются
+     * в потоке вызывающего, как в {@link #build(JsonParser, JsonParser, boolean, DiffSink)}.</p>
+     *
+     * @param first     парсер первого документа, ещё не прочитавший ни одного токена
+     * @param second    парсер второго документа, ещё не прочитавший ни одного токена
+     * @param recursive спускаться ли во вложенные объекты
+     * @param executor  исполнитель для двух задач-читателей
+     * @param sink      получатель узлов diff
+     * @throws IOException если не удалось прочитать один из документов
+     */
+    public static void build(JsonParser first, JsonParser second, boolean recursive, Executor executor,
+                             DiffSink sink) throws IOException {
+        if (recursive) {
+            build(first, second, true, sink);
+            return;
+        }
+        PrefetchingSource source1 = new PrefetchingSource(first);
+        PrefetchingSource source2 = new PrefetchingSource(second);
+        CompletableFuture<Void> reader1 = CompletableFuture.runAsync(source1, executor);
+        CompletableFuture<Void> reader2 = CompletableFuture.runAsync(source2, executor);
+        try {
+            merge(source1, source2, false, sink);
+        } finally {
+            source1.cancel();
+            source2.cancel();
+            // Отменённый читатель останавливается на следующем токене, не дочитывая файл;
+            // его ошибки уже переданы через очередь, здесь только дожидаемся остановки
+            reader1.exceptionally(e -> null).join();
+            reader2.exceptionally(e -> null).join();
+        }
+    }
+
+    /**
+     * Сравнивает два набора записей, сопоставляя их по ключу, и передаёт узлы diff в {@code sink}.
+     *
+     * <p>Ключ узла — ключ записи, значения — записи целиком (в рекурсивном режиме — их различия).
+     * Записи читаются по одной, так что память не зависит от числа записей и размера diff.</p>
+     *
+     * @param first     записи первого файла
+     * @param second    записи второго файла
+     * @param recursive спускаться ли в изменившиеся записи
+     * @param sink      получатель узлов diff
+     * @throws IOException если записи не удалось прочитать
+     */
+    public static void build(SortedRecords first, SortedRecords second, boolean recursive,
+                             DiffSink sink) throws IOException {
+        merge(new RecordSource(first), new RecordSource(second), recursive, sink);
+    }
+
+    /**
+     * Считает узлы diff каждого статуса, не создавая узлов для скаляров и объектов.
+     *
+     * <p>Значения сравниваются по токенам, без загрузки; загружаются только пары списков в рекурсивном
+     * режиме. Совпавший объект считается одним неизменённым узлом, как в {@link DiffStat#of}.</p>
+     *
+     * @param first     парсер первого документа, ещё не прочитавший ни одного токена
+     * @param second    парсер второго документа, ещё не прочитавший ни одного токена
+     * @param recursive спускаться ли во вложенные объекты и списки
+     * @return счётчики узлов
+     * @throws IOException если не удалось прочитать один из документов
+     */
+    public static DiffStat stat(JsonParser first, JsonParser second, boolean recursive) throws IOException {
+        StatSink sink = new StatSink();
+        walk(ObjectReader.root(first), ObjectReader.root(second), recursive, false, new Output(sink, false));
+        return sink.total();
+    }
+
+    /**
+     * Проверяет, различаются ли документы, и останавливается на первом различии.
+     *
+     * <p>Документы сравниваются по токенам, в этом потоке и без упреждающего чтения: ни значения,
+     * ни узлы diff не создаются, и если различие найдено в начале, остаток файлов не читается.
+     * Ключи должны быть упорядочены (см. {@link hexlet.code.parser.SortedKeys}): тогда равные
+     * документы дают одинаковые последовательности токенов.</p>
+     *
+     * @param first  парсер первого документа, ещё не прочитавший ни одного токена
+     * @param second парсер второго документа, ещё не прочитавший ни одного токена
+     * @return {@code true}, если документы различаются
+     * @throws IOException если не удалось прочитать один из документов
+     */
+    public static boolean differ(JsonParser first, JsonParser second) throws IOException {
+        requireObject(first);
+        requireObject(second);
+        return !sameTokens(first, second, false);
+    }
+
+    private static void walk(ObjectReader root1, ObjectReader root2, boolean recursive, boolean withValues,
+                             Output out) throws IOException {
+        // Пары открытых объектов от корня до текущего; глубина стека равна глубине вложенности
+        Deque<ObjectReader[]> levels = new ArrayDeque<>();
+        levels.push(new ObjectReader[] {root1, root2});
+        while (!levels.isEmpty()) {
+            ObjectReader first = levels.peek()[0];
+            ObjectReader second = levels.peek()[1];
+            if (!first.hasEntry() && !second.hasEntry()) {
+                levels.pop();
+                if (!levels.isEmpty()) {
+                    out.endNested();
+                    // Вложенный объект дочитан: родители переходят к следующему ключу
+                    levels.peek()[0].next();
+                    levels.peek()[1].next();
+                }
+                continue;
+            }
+            int order = !first.hasEntry() ? 1 : !second.hasEntry() ? -1 : first.key().compareTo(second.key());
+            if (order < 0) {
+                out.write(new DiffNode(first.key(), Status.REMOVED, first.take(withValues), null));
+                first.next();
+            } else if (order > 0) {
+                out.write(new DiffNode(second.key(), Status.ADDED, null, second.take(withValues)));
+                second.next();
+            } else if (recursive && first.atObject() && second.atObject()) {
+                out.startNested(first.key());
+                levels.push(new ObjectReader[] {first.enter(), second.enter()});
+            } else {
+                out.write(compare(first, second, recursive, withValues));
+                first.next();
+                second.next();
+            }
+        }
+    }
+
+    private static DiffNode compare(ObjectReader first, ObjectReader second, boolean recursive,
+                                    boolean withValues) throws IOException {
+        String key = first.key();
+        // Поэлементному diff списков нужны сами элементы
+        if (withValues || recursive && first.atArray() && second.atArray()) {
+            return DiffBuilder.compare(key, first.take(true), second.take(true), recursive);
+        }
+        Status status = sameTokens(first.enterValue(), second.enterValue(), true) ? Status.UNCHANGED : Status.UPDATED;
+        return new DiffNode(key, status, null, null);
+    }
+
+    /**
+     * Сравнивает значения, на первых токенах которых стоят парсеры, не загружая их.
+     *
+     * @param first  первый парсер
+     * @param second второй парсер
+     * @param finish дочитывать ли оба значения до конца, если они различаются
+     * @return {@code true}, если значения равны
+     * @throws IOException если не удалось прочитать один из документов
+     */
+    private static boolean sameTokens(JsonParser first, JsonParser second, boolean finish) throws IOException {
+        int depth = 0;
+        while (true) {
+            JsonToken token = first.currentToken();
+            if (!sameToken(first, second)) {
+                if (finish) {
+                    skipRest(first, depth);
+                    skipRest(second, depth);
+                }
+                return false;
+            }
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth == 0) {
+                return true;
+            }
+            first.nextToken();
+            second.nextToken();
+        }
+    }
+
+    private static boolean sameToken(JsonParser first, JsonParser second) throws IOException {
+        JsonToken token = first.currentToken();
+        if (token != second.currentToken()) {
+            return false;
+        }
+        if (token == JsonToken.FIELD_NAME) {
+            return first.currentName().equals(second.currentName());
+        }
+        // Скаляры сравниваются так же, как после загрузки документа
+        return !token.isScalarValue() || StructuralHash.same(Parser.readValue(first), Parser.readValue(second));
+    }
+
+    // Дочитывает значение, внутри которого парсер на глубине depth стоит на ещё не учтённом токене
+    private static void skipRest(JsonParser parser, int depth) throws IOException {
+        JsonToken token = parser.currentToken();
+        int open = depth + (token.isStructStart() ? 1 : token.isStructEnd() ? -1 : 0);
+        while (open > 0) {
+            token = parser.nextToken();
+            if (token.isStructStart()) {
+                open++;
+            } else if (token.isStructEnd()) {
+                open--;
+            }
+        }
+    }
+
+    private static void requireObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected an object at the top level of the document");
+        }
+    }
+
+    private static void merge(EntrySource first, EntrySource second, boolean recursive,
+                              DiffSink sink) throws IOException {
+        boolean has1 = first.next();
+        boolean has2 = second.next();
+
+        while (has1 || has2) {
+            int order = !has1 ? 1 : !has2 ? -1 : first.key().compareTo(second.key());
+            if (order < 0) {
+                sink.write(new DiffNode(first.key(), Status.REMOVED, first.value(), null));
+                has1 = first.next();
+            } else if (order > 0) {
+                sink.write(new DiffNode(second.key(), Status.ADDED, null, second.value()));
+                has2 = second.next();
+            } else {
+                sink.write(DiffBuilder.compare(first.key(), first.value(), second.value(), recursive));
+                has1 = first.next();
+                has2 = second.next();
+            }
+        }
+    }
+
+    /**
+     * Ключи одного открытого объекта; парсер общий с объектами выше и ниже по стеку.
+     */
+    private static final class ObjectReader {
+
+        private final JsonParser parser;
+        private String key;
+        private boolean hasEntry;
+        // Прочитано ли значение текущего ключа до последнего токена
+        private boolean consumed;
+
+        private ObjectReader(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        static ObjectReader root(JsonParser parser) throws IOException {
+            requireObject(parser);
+            ObjectReader reader = new ObjectReader(parser);
+            reader.next();
+            return reader;
+        }
+
+        /**
+         * Переходит к следующему ключу, пропуская непрочитанное значение текущего.
+         *
+         * @throws IOException если документ не удалось прочитать
+         */
+        void next() throws IOException {
+            if (hasEntry && !consumed) {
+                parser.skipChildren();
+            }
+            if (parser.nextToken() == JsonToken.END_OBJECT) {
+                hasEntry = false;
+                return;
+            }
+            String next = parser.currentName();
+            if (key != null && key.compareTo(next) >= 0) {
+                throw new IllegalStateException("Streaming diff requires sorted unique keys, but '"
+                        + next + "' follows '" + key + "'");
+            }
+            key = next;
+            parser.nextToken();
+            hasEntry = true;
+            consumed = false;
+        }
+
+        boolean hasEntry() {
+            return hasEntry;
+        }
+
+        String key() {
+            return key;
+        }
+
+        boolean atObject() {
+            return parser.currentToken() == JsonToken.START_OBJECT;
+        }
+
+        boolean atArray() {
+            return parser.currentToken() == JsonToken.START_ARRAY;
+        }
+
+        /**
+         * Загружает значение текущего ключа или, если значение не нужно, пропускает его.
+         *
+         * @param load загружать ли значение
+         * @return значение или {@code null}, если оно пропущено
+         * @throws IOException если документ не удалось прочитать
+         */
+        Object take(boolean load) throws IOException {
+            consumed = true;
+            if (load) {
+                return Parser.readValue(parser);
+            }
+            parser.skipChildren();
+            return null;
+        }
+
+        /**
+         * Отдаёт парсер, стоящий на первом токене значения; вызывающий дочитывает значение сам.
+         *
+         * @return парсер
+         */
+        JsonParser enterValue() {
+            consumed = true;
+            return parser;
+        }
+
+        /**
+         * Открывает значение текущего ключа как вложенный объект.
+         *
+         * @return ключи вложенного объекта; после их конца этот объект продолжается со следующего ключа
+         * @throws IOException если документ не удалось прочитать
+         */
+        ObjectReader enter() throws IOException {
+            ObjectReader nested = new ObjectReader(enterValue());
+            nested.next();
+            return nested;
+        }
+    }
+
+    /**
+     * Передаёт узлы получателю; если он не принимает вложенные объекты по частям, собирает их сам.
+     *
+     * <p>Дочерние узлы открытого объекта копятся, пока все они неизменённые. Если объект так и закончился,
+     * он передаётся одним узлом {@link Status#UNCHANGED}, как в {@link DiffBuilder}; первое же различие
+     * открывает его (и все ещё не открытые объекты выше) в получателе, и дальше узлы идут без задержки.</p>
+     */
+    private static final class Output {
+
+        private final DiffSink sink;
+        private final boolean withValues;
+        private final Deque<Level> levels = new ArrayDeque<>();
+
+        Output(DiffSink sink, boolean withValues) {
+            this.sink = sink;
+            this.withValues = withValues;
+        }
+
+        /**
+         * Открытый вложенный объект.
+         */
+        private static final class Level {
+
+            private final String key;
+            // Узлы, ещё не переданные получателю: все, пока объект совпадает или получатель собирает его сам
+            private List<DiffNode> children = new ArrayList<>();
+            private boolean same = true;
+
+            Level(String key) {
+                this.key = key;
+            }
+        }
+
+        void write(DiffNode node) throws IOException {
+            Level level = levels.peek();
+            if (level == null) {
+                sink.write(node);
+                return;
+            }
+            if (level.same && node.status() != Status.UNCHANGED) {
+                open();
+            }
+            if (level.children != null) {
+                level.children.add(node);
+            } else {
+                sink.write(node);
+            }
+        }
+
+        void startNested(String key) {
+            levels.push(new Level(key));
+        }
+
+        void endNested() throws IOException {
+            Level level = levels.pop();
+            if (level.same) {
+                write(unchanged(level));
+            } else if (sink.streamsNested()) {
+                sink.endNested();
+            } else {
+                write(DiffNode.nested(level.key, level.children));
+            }
+        }
+
+        // Открывает объекты, совпадавшие до сих пор, от внешнего к внутреннему; они идут подряд на вершине стека
+        private void open() throws IOException {
+            Iterator<Level> outward = levels.iterator();
+            Deque<Level> opened = new ArrayDeque<>();
+            while (outward.hasNext()) {
+                Level level = outward.next();
+                if (!level.same) {
+                    break;
+                }
+                opened.push(level);
+            }
+            for (Level level : opened) {
+                level.same = false;
+                if (sink.streamsNested()) {
+                    sink.startNested(level.key);
+                    for (DiffNode child : level.children) {
+                        sink.write(child);
+                    }
+                    level.children = null;
+                }
+            }
+        }
+
+        private DiffNode unchanged(Level level) {
+            if (!withValues) {
+                return new DiffNode(level.key, Status.UNCHANGED, null, null);
+            }
+            HashedMap oldValue = new HashedMap();
+            HashedMap newValue = new HashedMap();
+            for (DiffNode child : level.children) {
+                oldValue.put(child.key(), child.oldValue());
+                newValue.put(child.key(), child.newValue());
+            }
+            return new DiffNode(level.key, Status.UNCHANGED, oldValue, newValue);
+        }
+    }
+
+    /**
+     * Считает узлы; совпавший вложенный объект приходит от {@link Output} одним неизменённым узлом.
+     */
+    private static final class StatSink implements DiffSink {
+
+        private final Deque<DiffStat> levels = new ArrayDeque<>(List.of(new DiffStat()));
+
+        @Override
+        public void write(DiffNode node) {
+            levels.peek().add(node);
+        }
+
+        @Override
+        public boolean streamsNested() {
+            return true;
+        }
+
+        @Override
+        public void startNested(String key) {
+            levels.push(new DiffStat());
+        }
+
+        @Override
+        public void endNested() {
+            DiffStat nested = levels.pop();
+            levels.peek().add(DiffNode.nested(null, List.of()));
+            levels.peek().include(nested);
+        }
+
+        DiffStat total() {
+            return levels.peek();
+        }
+    }
+
+    /**
+     * Последовательность пар ключ–значение верхнего уровня документа.
+     */
+    private interface EntrySource {
+
+        /**
+         * Переходит к следующей паре.
+         *
+         * @return {@code false}, если пар больше нет
+         * @throws IOException если документ не удалось прочитать
+         */
+        boolean next() throws IOException;
+
+        String key();
+
+        Object value();
+    }
+
+    private static final class ParserSource implements EntrySource {
+
+        private final JsonParser parser;
+        private boolean started;
+        private String key;
+        private Object value;
+
+        ParserSource(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!started) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Expected an object at the top level of the document");
+                }
+                started = true;
+            }
+            if (parser.nextToken() == JsonToken.END_OBJECT) {
+                key = null;
+                value = null;
+                return false;
+            }
+            String next = parser.currentName();
+            if (key != null && key.compareTo(next) >= 0) {
+                throw new IllegalStateException("Streaming diff requires sorted top-level keys, but '"
+                        + next + "' follows '" + key + "'");
+            }
+            key = next;
+            parser.nextToken();
+            value = Parser.readValue(parser);
+            return true;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public Object value() {
+            return value;
+        }
+    }
+
+    private record RecordSource(SortedRecords records) implements EntrySource {
+
+        @Override
+        public boolean next() throws IOException {
+            return records.next();
+        }
+
+        @Override
+        public String key() {
+            return records.key();
+        }
+
+        @Override
+        public Object value() {
+            return records.record();
+        }
+    }
+
+    /**
+     * Читает пары документа в своём потоке и отдаёт их пачками.
+     *
+     * <p>После {@link #cancel()} чтение прекращается на следующем токене, даже посреди большого значения,
+     * а парсер закрывается: если слияние упало на одной стороне, другая не дочитывается до конца.</p>
+     */
+    private static final class PrefetchingSource implements EntrySource, Runnable {
+
+        private static final Chunk END = new Chunk(new String[0], new Object[0], 0, null);
+
+        private final JsonParser parser;
+        private final ParserSource source;
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        private volatile boolean cancelled;
+
+        private Chunk current;
+        private int index;
+
+        PrefetchingSource(JsonParser parser) {
+            this.parser = parser;
+            this.source = new ParserSource(new CancellableParser(parser));
+        }
+
+        private record Chunk(String[] keys, Object[] values, int size, Throwable failure) {
+        }
+
+        /**
+         * Парсер, который бросает {@link CancellationException} на первом токене после отмены.
+         */
+        private final class CancellableParser extends JsonParserDelegate {
+
+            CancellableParser(JsonParser delegate) {
+                super(delegate);
+            }
+
+            @Override
+            public JsonToken nextToken() throws IOException {
+                if (cancelled) {
+                    throw new CancellationException("Document reader was cancelled");
+                }
+                return super.nextToken();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                String[] keys = new String[CHUNK_SIZE];
+                Object[] values = new Object[CHUNK_SIZE];
+                int size = 0;
+                while (!cancelled && source.next()) {
+                    keys[size] = source.key();
+                    values[size] = source.value();
+                    if (++size == CHUNK_SIZE) {
+                        if (!publish(new Chunk(keys, values, size, null))) {
+                            return;
+                        }
+                        keys = new String[CHUNK_SIZE];
+                        values = new Object[CHUNK_SIZE];
+                        size = 0;
+                    }
+                }
+                if (size > 0 && !publish(new Chunk(keys, values, size, null))) {
+                    return;
+                }
+                publish(END);
+            } catch (Throwable e) {
+                // Ошибку получит слияние при чтении этой пачки; без неё оно ждало бы очередь вечно
+                publishQuietly(new Chunk(null, null, 0, e));
+            } finally {
+                if (cancelled) {
+                    closeQuietly();
+                }
+            }
+        }
+
+        /**
+         * Кладёт пачку в очередь, пока слияние её читает.
+         *
+         * @param chunk пачка
+         * @return {@code false}, если слияние отменено и чтение нужно прекратить
+         * @throws InterruptedException если поток читателя прерван
+         */
+        private boolean publish(Chunk chunk) throws InterruptedException {
+            while (!cancelled) {
+                if (queue.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void publishQuietly(Chunk chunk) {
+            try {
+                publish(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void closeQuietly() {
+            // Парсер закрывает поток читателя: закрытие из другого потока вернуло бы буферы парсера,
+            // пока он ещё в них пишет
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // Документ больше не читается, ошибка закрытия ничего не меняет
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (current != null && ++index < current.size()) {
+                return true;
+            }
+            try {
+                current = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the document reader");
+            }
+            index = 0;
+            if (current.failure() != null) {
+                rethrow(current.failure());
+            }
+            return current != END;
+        }
+
+        private static void rethrow(Throwable failure) throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IOException(failure);
+        }
+
+        @Override
+        public String key() {
+            return current.keys()[index];
+        }
+
+        @Override
+        public Object value() {
+            return current.values()[index];
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package hexlet.code.core;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Структурный 64-битный хеш значений документа.
+ *
+ * <p>Хеш зависит только от содержимого: у равных по {@code equals} значений он совпадает.
+ * Для карт порядок ключей не учитывается, для списков учитывается. Тип скаляра входит
+ * в хеш, поэтому {@code 1} и {@code 1L} различаются так же, как при {@code equals}. Двоичные
+ * значения ({@code byte[]} из Smile, CBOR и MessagePack) хешируются и сравниваются по содержимому.</p>
+ *
+ * <p>Для {@link Hashed}-значений, построенных парсером, хеш уже посчитан, и {@link #same(Object, Object)}
+ * сравнивает поддеревья за O(1) — и равные, и разные. Чтобы совпадению хешей можно было доверять, хеш
+ * ключевой: каждое значение перемешивается с секретным 64-битным ключом, который выбирается случайно при
+ * запуске процесса. Без ключа подобрать два документа с одинаковым хешем нельзя (сумма по записям карты
+ * и произведения в хеше списка обратимы лишь при известных хешах элементов), а случайное совпадение
+ * разных значений имеет вероятность порядка 2<sup>-64</sup>. Поэтому хеш не сохраняется между запусками
+ * и не выводится.</p>
+ */
+public final class StructuralHash {
+
+    /** Секретный ключ процесса: без него коллизию хешей не подобрать заранее. */
+    private static final long KEY = new SecureRandom().nextLong();
+
+    private static final long NULL_HASH = mix(0, 0);
+    private static final long LIST_PRIME = 0x9E3779B97F4A7C15L;
+    private static final long MAP_SEED = 0x632BE59BD9B4E019L;
+
+    private static final long INTEGER_TAG = 1;
+    private static final long LONG_TAG = 2;
+    private static final long DOUBLE_TAG = 3;
+    private static final long BOOLEAN_TAG = 4;
+    private static final long STRING_TAG = 5;
+    private static final long LIST_TAG = 6;
+    private static final long MAP_TAG = 7;
+    private static final long BINARY_TAG = 8;
+    private static final int CHARS_PER_BLOCK = 4;
+
+    private StructuralHash() {
+    }
+
+    /**
+     * Проверяет, равны ли два значения документа.
+     *
+     * <p>Два {@link Hashed}-значения сравниваются только по готовым хешам, за O(1). Остальные карты
+     * и списки сравниваются поэлементно, и на каждом уровне {@link Hashed}-элементы снова сверяются
+     * по хешам.</p>
+     *
+     * @param first  первое значение
+     * @param second второе значение
+     * @return {@code true}, если значения равны
+     */
+    public static boolean same(Object first, Object second) {
+        return equal(first, second, false);
+    }
+
+    /**
+     * Проверяет равенство значений по правилам JSON (RFC 6902, операция {@code test}): в отличие от
+     * {@link #same(Object, Object)}, числа сравниваются по значению, так что {@code 1}, {@code 1L}
+     * и {@code 1.0} равны. Готовые хеши здесь не используются — они различают типы чисел.
+     *
+     * @param first  первое значение
+     * @param second второе значение
+     * @return {@code true}, если значения равны как значения JSON
+     */
+    public static boolean sameJson(Object first, Object second) {
+        return equal(first, second, true);
+    }
+
+    private static boolean equal(Object first, Object second, boolean numbersByValue) {
+        if (first == second) {
+            return true;
+        }
+        if (!numbersByValue && first instanceof Hashed && second instanceof Hashed) {
+            return ((Hashed) first).structuralHash() == ((Hashed) second).structuralHash();
+        }
+        if (first instanceof Map && second instanceof Map) {
+            return sameMaps((Map<?, ?>) first, (Map<?, ?>) second, numbersByValue);
+        }
+        if (first instanceof List && second instanceof List) {
+            return sameLists((List<?>) first, (List<?>) second, numbersByValue);
+        }
+        if (first instanceof byte[] && second instanceof byte[]) {
+            // Двоичные значения Smile, CBOR и MessagePack: у массива equals сравнивает ссылки
+            return Arrays.equals((byte[]) first, (byte[]) second);
+        }
+        if (numbersByValue && first instanceof Number && second instanceof Number) {
+            return sameNumbers((Number) first, (Number) second);
+        }
+        return Objects.equals(first, second);
+    }
+
+    private static boolean sameMaps(Map<?, ?> first, Map<?, ?> second, boolean numbersByValue) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (Map.Entry<?, ?> entry : first.entrySet()) {
+            Object value = second.get(entry.getKey());
+            if (value == null && !second.containsKey(entry.getKey())
+                    || !equal(entry.getValue(), value, numbersByValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameLists(List<?> first, List<?> second, boolean numbersByValue) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        Iterator<?> elements = second.iterator();
+        for (Object element : first) {
+            if (!equal(element, elements.next(), numbersByValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameNumbers(Number first, Number second) {
+        if (!isFinite(first) || !isFinite(second)) {
+            // Бесконечность и NaN (YAML .inf, .nan) в BigDecimal не представить
+            return Double.compare(first.doubleValue(), second.doubleValue()) == 0;
+        }
+        return decimal(first).compareTo(decimal(second)) == 0;
+    }
+
+    private static boolean isFinite(Number number) {
+        return !(number instanceof Double || number instanceof Float) || Double.isFinite(number.doubleValue());
+    }
+
+    private static BigDecimal decimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    /**
+     * Вычисляет структурный хеш значения.
+     *
+     * @param value значение документа
+     * @return 64-битный хеш содержимого
+     */
+    public static long of(Object value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        if (value instanceof Hashed) {
+            return ((Hashed) value).structuralHash();
+        }
+        if (value instanceof String) {
+            return ofString((String) value);
+        }
+        if (value instanceof Map) {
+            return ofMap((Map<?, ?>) value);
+        }
+        if (value instanceof List) {
+            return ofList((List<?>) value);
+        }
+        if (value instanceof Integer) {
+            return ofInt((Integer) value);
+        }
+        if (value instanceof Long) {
+            return ofLong((Long) value);
+        }
+        if (value instanceof Double) {
+            return ofDouble((Double) value);
+        }
+        if (value instanceof Boolean) {
+            return ofBoolean((Boolean) value);
+        }
+        if (value instanceof byte[]) {
+            return ofBytes((byte[]) value);
+        }
+        return mix(value.getClass().getName().hashCode(), value.hashCode());
+    }
+
+    static long ofMap(Map<?, ?> map) {
+        long sum = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            sum = combineMap(sum, of(entry.getKey()), of(entry.getValue()));
+        }
+        return finishMap(sum, map.size());
+    }
+
+    static long ofList(List<?> list) {
+        long hash = list.size();
+        for (Object element : list) {
+            hash = combineList(hash, of(element));
+        }
+        return finishList(hash);
+    }
+
+    /* Функции ниже позволяют считать хеш по примитивам, не упаковывая их:
+     * компактная модель документа ({@link CompactObject}) получает тот же хеш, что и HashedMap. */
+
+    static long ofNull() {
+        return NULL_HASH;
+    }
+
+    static long ofInt(int value) {
+        return mix(INTEGER_TAG, value);
+    }
+
+    static long ofLong(long value) {
+        return mix(LONG_TAG, value);
+    }
+
+    static long ofDouble(double value) {
+        return mix(DOUBLE_TAG, Double.doubleToLongBits(value));
+    }
+
+    static long ofBoolean(boolean value) {
+        return mix(BOOLEAN_TAG, value ? 1 : 0);
+    }
+
+    static long combineMap(long sum, long keyHash, long valueHash) {
+        // Сумма не зависит от порядка ключей, как и Map.equals
+        return sum + mix(keyHash, valueHash);
+    }
+
+    static long finishMap(long sum, int size) {
+        return mix(MAP_TAG, MAP_SEED + sum + size);
+    }
+
+    /**
+     * Добавляет хеш очередного элемента списка; начальное значение — размер списка.
+     *
+     * @param hash        накопленный хеш
+     * @param elementHash хеш элемента
+     * @return новый накопленный хеш
+     */
+    static long combineList(long hash, long elementHash) {
+        return hash * LIST_PRIME + elementHash;
+    }
+
+    static long finishList(long hash) {
+        return mix(LIST_TAG, hash);
+    }
+
+    static long ofString(String value) {
+        // По четыре символа в одном перемешивании: у 32-битного String.hashCode коллизии подбираются легко
+        long hash = STRING_TAG;
+        int i = 0;
+        for (; i + CHARS_PER_BLOCK <= value.length(); i += CHARS_PER_BLOCK) {
+            hash = mix(hash, (long) value.charAt(i) << 48 | (long) value.charAt(i + 1) << 32
+                    | (long) value.charAt(i + 2) << 16 | value.charAt(i + 3));
+        }
+        long tail = 0;
+        for (; i < value.length(); i++) {
+            tail = tail << 16 | value.charAt(i);
+        }
+        return mix(mix(hash, tail), value.length());
+    }
+
+    private static long ofBytes(byte[] value) {
+        long hash = BINARY_TAG;
+        int i = 0;
+        for (; i + Long.BYTES <= value.length; i += Long.BYTES) {
+            long block = 0;
+            for (int k = 0; k < Long.BYTES; k++) {
+                block = block << Byte.SIZE | value[i + k] & 0xFF;
+            }
+            hash = mix(hash, block);
+        }
+        long tail = 0;
+        for (; i < value.length; i++) {
+            tail = tail << Byte.SIZE | value[i] & 0xFF;
+        }
+        return mix(mix(hash, tail), value.length);
+    }
+
+    private static long mix(long tag, long value) {
+        // Финализатор SplitMix64 над значением, смешанным с ключом процесса
+        long hash = (value ^ KEY) * LIST_PRIME + tag;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,36 @@
+package hexlet.code.formatter;
+
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.DiffSink;
+
+import java.io.IOException;
+
+/**
+ * Пишет узлы diff в выходной поток по одному, по мере их появления.
+ *
+ * <p>Создаётся через {@link Formatter#writer}: к этому моменту начало вывода уже записано.
+ * После последнего узла нужно вызвать {@link #finish()}, который допишет окончание.
+ * Сам выходной поток не закрывается.</p>
+ *
+ * <p>Писатели встроенных форматов принимают и вложенные объекты по частям
+ * ({@link DiffSink#streamsNested()}); писателю другого формата потоковое сравнение
+ * передаёт вложенный объект готовым узлом.</p>
+ */
+public interface DiffWriter extends DiffSink {
+
+    /**
+     * Записывает очередной узел; внутри открытого вложенного объекта — его дочерний узел.
+     *
+     * @param node узел diff
+     * @throws IOException если запись не удалась
+     */
+    @Override
+    void write(DiffNode node) throws IOException;
+
+    /**
+     * Дописывает окончание вывода.
+     *
+     * @throws IOException если запись не удалась
+     */
+    void finish() throws IOException;
+}
@@ -2,22 +2,44 @@ package hexlet.code.formatter;
 
 import hexlet.code.core.DiffNode;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 
 public interface Formatter {
-    String format(List<DiffNode> diff) throws Exception;
 
-    static Formatter getFormatter(String format) {
-        if ("stylish".equals(format)) {
-            return new StylishFormatter();
-        }
-        if ("plain".equals(format)) {
-            return new PlainFormatter();
-        }
-        if ("json".equals(format)) {
-            return new JsonFormatter();
+    /**
+     * Возвращает имя формата, по которому форматтер выбирается в {@link FormatterRegistry}.
+     *
+     * @return имя формата, например {@code "stylish"}
+     */
+    String name();
+
+    /**
+     * Начинает вывод diff в {@code out}; узлы передаются в возвращённый {@link DiffWriter}.
+     *
+     * @param out выходной поток
+     * @return писатель узлов этого формата
+     * @throws IOException если запись не удалась
+     */
+    DiffWriter writer(Writer out) throws IOException;
+
+    default void format(List<DiffNode> diff, Writer out) throws IOException {
+        DiffWriter writer = writer(out);
+        for (DiffNode node : diff) {
+            writer.write(node);
         }
+        writer.finish();
+    }
+
+    default String format(List<DiffNode> diff) throws IOException {
+        StringWriter out = new StringWriter();
+        format(diff, out);
+        return out.toString();
+    }
 
-        throw new IllegalArgumentException("Unknown format: " + format);
+    static Formatter getFormatter(String format) {
+        return FormatterRegistry.get(format);
     }
 }
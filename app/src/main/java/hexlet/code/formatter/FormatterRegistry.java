@@ -0,0 +1,56 @@
+package hexlet.code.formatter;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр форматтеров по имени.
+ *
+ * <p>Форматтеры не хранят состояния между вызовами, поэтому каждый создаётся один раз
+ * и используется из любых потоков. Кроме встроенных форматов, при первом обращении
+ * подключаются форматтеры, объявленные через {@link ServiceLoader} в
+ * {@code META-INF/services/hexlet.code.formatter.Formatter}; их можно также
+ * зарегистрировать вызовом {@link #register}.</p>
+ */
+public final class FormatterRegistry {
+
+    private static final Map<String, Formatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    static {
+        register(new StylishFormatter());
+        register(new PlainFormatter());
+        register(new JsonFormatter());
+        register(new PatchFormatter());
+        for (Formatter formatter : ServiceLoader.load(Formatter.class)) {
+            register(formatter);
+        }
+    }
+
+    private FormatterRegistry() {
+    }
+
+    /**
+     * Регистрирует форматтер под его именем, заменяя ранее зарегистрированный.
+     *
+     * @param formatter форматтер без изменяемого состояния
+     */
+    public static void register(Formatter formatter) {
+        FORMATTERS.put(formatter.name(), formatter);
+    }
+
+    /**
+     * Возвращает форматтер по имени.
+     *
+     * @param name имя формата
+     * @return общий экземпляр форматтера
+     * @throws IllegalArgumentException если формат неизвестен
+     */
+    public static Formatter get(String name) {
+        Formatter formatter = name == null ? null : FORMATTERS.get(name);
+        if (formatter == null) {
+            throw new IllegalArgumentException("Unknown format: " + name);
+        }
+        return formatter;
+    }
+}
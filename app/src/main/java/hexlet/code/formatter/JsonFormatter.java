@@ -1,15 +1,68 @@
 package hexlet.code.formatter;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import hexlet.code.core.DiffNode;
+import hexlet.code.core.Status;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.Writer;
 
 public final class JsonFormatter implements Formatter {
 
+    /* ObjectWriter неизменяем и потокобезопасен: общий экземпляр сохраняет кеш сериализаторов
+     * между вызовами. Сбрасывать буфер после каждого узла незачем, это сделает вызывающий код. */
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
     @Override
-    public String format(List<DiffNode> diff) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.writeValueAsString(diff);
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public DiffWriter writer(Writer out) throws IOException {
+        JsonGenerator generator = WRITER.createGenerator(out);
+        // Выходной поток принадлежит вызывающему коду: закрывая генератор, не закрываем его
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+
+        return new DiffWriter() {
+            @Override
+            public void write(DiffNode node) throws IOException {
+                WRITER.writeValue(generator, node);
+            }
+
+            @Override
+            public boolean streamsNested() {
+                return true;
+            }
+
+            @Override
+            public void startNested(String key) throws IOException {
+                // Те же поля и в том же порядке, что у сериализованного DiffNode.nested(key, children)
+                generator.writeStartObject();
+                generator.writeStringField("key", key);
+                generator.writeStringField("status", Status.NESTED.name());
+                generator.writeNullField("oldValue");
+                generator.writeNullField("newValue");
+                generator.writeArrayFieldStart("children");
+            }
+
+            @Override
+            public void endNested() throws IOException {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+
+            @Override
+            public void finish() throws IOException {
+                generator.writeEndArray();
+                generator.close();
+            }
+        };
     }
 }
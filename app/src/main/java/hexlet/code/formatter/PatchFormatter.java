@@ -0,0 +1,156 @@
+package hexlet.code.formatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.Status;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Выводит diff как JSON Patch (RFC 6902): только изменения, без неизменённых ключей и старых значений.
+ *
+ * <p>Добавленный ключ становится операцией {@code add}, удалённый — {@code remove}, изменённый —
+ * {@code replace}; вложенные объекты и списки раскрываются в операции с путём JSON Pointer до
+ * изменившегося значения. Поэтому размер патча растёт с числом изменений, а не с размером документа;
+ * в нерекурсивном режиме изменённый объект заменяется целиком.</p>
+ *
+ * <p>Операции применяются по порядку, и индекс элемента списка должен указывать на его место
+ * в момент применения. Узлы удалённых элементов несут индекс в старом списке, поэтому к нему
+ * прибавляется разница между уже добавленными и удалёнными элементами этого списка.</p>
+ */
+public final class PatchFormatter implements Formatter {
+
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    @Override
+    public String name() {
+        return "patch";
+    }
+
+    @Override
+    public DiffWriter writer(Writer out) throws IOException {
+        JsonGenerator generator = WRITER.createGenerator(out);
+        // Выходной поток принадлежит вызывающему коду: закрывая генератор, не закрываем его
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        return new PatchWriter(generator);
+    }
+
+    private static final class PatchWriter implements DiffWriter {
+
+        private final JsonGenerator generator;
+        // Путь к текущему вложенному значению; при выходе из него обрезается до прежней длины
+        private final StringBuilder path = new StringBuilder();
+        // Длины path до каждого объекта, открытого через startNested
+        private final Deque<Integer> lengths = new ArrayDeque<>();
+
+        PatchWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void write(DiffNode node) throws IOException {
+            int length = path.length();
+            appendKey(node.key());
+            writeNode(node);
+            path.setLength(length);
+        }
+
+        @Override
+        public boolean streamsNested() {
+            return true;
+        }
+
+        @Override
+        public void startNested(String key) {
+            lengths.push(path.length());
+            appendKey(key);
+        }
+
+        @Override
+        public void endNested() {
+            path.setLength(lengths.pop());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+        }
+
+        // Путь к узлу уже дописан в path
+        private void writeNode(DiffNode node) throws IOException {
+            switch (node.status()) {
+                case ADDED -> writeOperation("add", node.newValue(), true);
+                case REMOVED -> writeOperation("remove", null, false);
+                case UPDATED -> writeOperation("replace", node.newValue(), true);
+                case NESTED -> {
+                    for (DiffNode child : node.children()) {
+                        write(child);
+                    }
+                }
+                case NESTED_LIST -> writeListChildren(node);
+                default -> {
+                    // Неизменённые ключи в патч не попадают
+                }
+            }
+        }
+
+        private void writeListChildren(DiffNode node) throws IOException {
+            int shift = 0;
+            for (DiffNode child : node.children()) {
+                int index = elementIndex(child.key());
+                int length = path.length();
+                if (child.status() == Status.REMOVED) {
+                    // Индекс в старом списке переводится в текущее место элемента
+                    path.append('/').append(index + shift);
+                    shift--;
+                } else {
+                    path.append('/').append(index);
+                    if (child.status() == Status.ADDED) {
+                        shift++;
+                    }
+                }
+                writeNode(child);
+                path.setLength(length);
+            }
+        }
+
+        private void writeOperation(String op, Object value, boolean hasValue) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("op", op);
+            generator.writeStringField("path", path.toString());
+            if (hasValue) {
+                generator.writeFieldName("value");
+                WRITER.writeValue(generator, value);
+            }
+            generator.writeEndObject();
+        }
+
+        private void appendKey(String key) {
+            path.append('/');
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c == '~') {
+                    path.append("~0");
+                } else if (c == '/') {
+                    path.append("~1");
+                } else {
+                    path.append(c);
+                }
+            }
+        }
+
+        private static int elementIndex(String key) {
+            return Integer.parseInt(key, 1, key.length() - 1, 10);
+        }
+    }
+}
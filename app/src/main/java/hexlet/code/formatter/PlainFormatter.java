@@ -1,7 +1,12 @@
 package hexlet.code.formatter;
 
 import hexlet.code.core.DiffNode;
+import hexlet.code.core.Status;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 
@@ -14,82 +19,173 @@ import java.util.Map;
  *     <li><b>ADDED</b> – свойство добавлено;</li>
  *     <li><b>REMOVED</b> – свойство удалено;</li>
  *     <li><b>UPDATED</b> – значение изменилось (от старого к новому);</li>
- *     <li><b>UNCHANGED</b> – пропускается, так как в plain‑выводе не отражается.</li>
+ *     <li><b>UNCHANGED</b> – пропускается, так как в plain‑выводе не отражается;</li>
+ *     <li><b>NESTED</b> – раскрывается: изменения внутри выводятся с путём вида «parent.child»;</li>
+ *     <li><b>NESTED_LIST</b> – раскрывается так же, путь к элементу имеет вид «parent[3]».</li>
  * </ul></p>
  *
  * @see hexlet.code.formatter.Formatter
  */
 public class PlainFormatter implements Formatter {
 
+    @Override
+    public String name() {
+        return "plain";
+    }
+
     /**
-     * Форматирует список узлов diff в текстовый вид «plain».
+     * Возвращает писателя, выводящего узлы diff в текстовом виде «plain».
      *
      * <p>Для каждого {@link DiffNode} создаётся строка,
      * описывающая изменение. Если свойство не изменилось (status = UNCHANGED),
-     * строка генерируется как пустая и пропускается.</p>
+     * строка не выводится. Строки разделяются
+     * переводом строки, после последней строки он не ставится.</p>
      *
-     * @param diff список узлов, представляющих различия
-     * @return строку с результатом форматирования без завершающей новой строки
+     * @param out выходной поток
+     * @return писатель узлов
      */
     @Override
-    public String format(List<DiffNode> diff) {
-        // Храним результат в StringBuilder для конкатенации
-        StringBuilder result = new StringBuilder();
-
-        for (DiffNode node : diff) {
-            // Используем switch‑выражение, чтобы получить строку в зависимости от статуса
-            String line = switch (node.status()) {
-                case ADDED ->
+    public DiffWriter writer(Writer out) {
+        return new PlainWriter(out);
+    }
+
+    private static final class PlainWriter implements DiffWriter {
+
+        private final ValueAppender out;
+        // Путь к текущему вложенному объекту: сегменты выводятся по одному, без склейки в строку
+        private final Deque<String> path = new ArrayDeque<>();
+        // Перевод строки пишется перед каждой строкой, кроме первой, чтобы не было завершающего
+        private boolean first = true;
+
+        PlainWriter(Writer out) {
+            this.out = new ValueAppender(out);
+        }
+
+        @Override
+        public void write(DiffNode node) throws IOException {
+            appendNode(node);
+        }
+
+        @Override
+        public boolean streamsNested() {
+            return true;
+        }
+
+        @Override
+        public void startNested(String key) {
+            path.addLast(key);
+        }
+
+        @Override
+        public void endNested() {
+            path.removeLast();
+        }
+
+        @Override
+        public void finish() {
+            // Завершающего текста у формата нет
+        }
+
+        /**
+         * Выводит строку для узла или, для вложенного объекта, строки его дочерних узлов.
+         *
+         * <p>Шаблоны строк разобраны вручную: вместо {@code String.format} части строки
+         * пишутся в выходной поток по очереди.</p>
+         *
+         * @param node узел diff
+         * @throws IOException если запись не удалась
+         */
+        private void appendNode(DiffNode node) throws IOException {
+            // Вложенный объект не даёт своей строки: выводим изменения внутри него с полным путём
+            if (node.status() == Status.NESTED || node.status() == Status.NESTED_LIST) {
+                path.addLast(node.key());
+                // Индексный обход: итератор рекурсивного вызова JIT не убирает, и он создавался бы на каждый узел
+                List<DiffNode> children = node.children();
+                for (int i = 0; i < children.size(); i++) {
+                    appendNode(children.get(i));
+                }
+                path.removeLast();
+                return;
+            }
+
+            // Используем switch, чтобы вывести строку в зависимости от статуса
+            switch (node.status()) {
+                case ADDED -> {
                     // Добавлено новое свойство: выводим ключ и значение нового значения
-                    String.format("Property '%s' was added with value: %s",
-                        node.key(), stringify(node.newValue()));
-                case REMOVED ->
-                        // Свойство удалено: только имя свойства
-                    String.format("Property '%s' was removed", node.key());
-                case UPDATED ->
-                        // Значение изменилось: выводим старое и новое значение
-                    String.format("Property '%s' was updated. From %s to %s",
-                        node.key(), stringify(node.oldValue()), stringify(node.newValue()));
-                case UNCHANGED -> "";
-            };
-
-            // Если строка не пустая, добавляем её в результат и завершаем переводом строки
-            if (!line.isEmpty()) {
-                result.append(line).append("\n");
+                    startLine(node);
+                    out.append("' was added with value: ");
+                    appendValue(node.newValue());
+                }
+                case REMOVED -> {
+                    // Свойство удалено: только имя свойства
+                    startLine(node);
+                    out.append("' was removed");
+                }
+                case UPDATED -> {
+                    // Значение изменилось: выводим старое и новое значение
+                    startLine(node);
+                    out.append("' was updated. From ");
+                    appendValue(node.oldValue());
+                    out.append(" to ");
+                    appendValue(node.newValue());
+                }
+                default -> {
+                    // UNCHANGED в plain‑выводе не отражается
+                }
             }
         }
 
-        /* Удаляем лишний символ новой строки,
-         * если хотя бы одна строка была добавлена. */
-        if (result.length() > 0) {
-            result.setLength(result.length() - 1);
+        /**
+         * Отделяет строку от предыдущей и выводит её начало: «Property 'путь.к.ключу».
+         * Индексы элементов списка ({@code [3]}) присоединяются к пути без точки.
+         *
+         * @param node узел, для которого начинается строка
+         * @throws IOException если запись не удалась
+         */
+        private void startLine(DiffNode node) throws IOException {
+            if (!first) {
+                out.append("\n");
+            }
+            first = false;
+            out.append("Property '");
+            boolean firstSegment = true;
+            for (String segment : path) {
+                appendSegment(segment, firstSegment);
+                firstSegment = false;
+            }
+            appendSegment(node.key(), firstSegment);
         }
-        return result.toString();
-    }
 
-    /**
-     * Преобразует произвольный объект в строку, пригодную для вывода.
-     *
-     * <p>Сложные структуры (списки и карты) заменяются на
-     * фиксированную метку "[complex value]". Пустые строки оборачиваются в кавычки,
-     * а {@code null} выводится как «null».</p>
-     *
-     * @param value объект, который нужно представить как строку
-     * @return строковое представление значения
-     */
-    private String stringify(Object value) {
-        if (value == null) {
-            return "null";
-        }
-        // Для сложных типов выводим заглушку – их внутреннее содержимое не требуется в plain‑выводе
-        if (value instanceof List || value instanceof Map) {
-            return "[complex value]";
+        private void appendSegment(String segment, boolean firstSegment) throws IOException {
+            if (!firstSegment && !segment.startsWith("[")) {
+                out.append(".");
+            }
+            out.append(segment);
         }
-        // Строки помещаем в одинарные кавычки, чтобы явно показать границы значения
-        if (value instanceof String) {
-            return "'" + value + "'";
+
+        /**
+         * Выводит значение в виде, пригодном для plain‑вывода.
+         *
+         * <p>Сложные структуры (списки и карты) заменяются на
+         * фиксированную метку "[complex value]". Строки оборачиваются в кавычки,
+         * а {@code null} выводится как «null».</p>
+         *
+         * @param value значение, которое нужно вывести
+         * @throws IOException если запись не удалась
+         */
+        private void appendValue(Object value) throws IOException {
+            // Для сложных типов выводим заглушку – их внутреннее содержимое не требуется в plain‑выводе
+            if (value instanceof List || value instanceof Map) {
+                out.append("[complex value]");
+            } else if (value instanceof String) {
+                // Строки помещаем в одинарные кавычки, чтобы явно показать границы значения
+                out.append("'");
+                out.append((String) value);
+                out.append("'");
+            } else {
+                // Для остальных типов выводим то же, что дал бы toString()
+                out.value(value);
+            }
         }
-        // Для остальных типов используем их обычный toString()
-        return value.toString();
     }
 }
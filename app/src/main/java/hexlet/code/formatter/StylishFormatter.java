@@ -2,12 +2,13 @@ package hexlet.code.formatter;
 
 import hexlet.code.core.DiffNode;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.Writer;
 
 /**
  * <p>Форматирует список изменений {@link DiffNode} в читаемый вид «stylish».</p>
  *
- * <p>В результате работы метода получается строка, где каждая строка представляет
+ * <p>В результате получается текст, где каждая строка представляет
  * один элемент изменения. Формат соответствует следующей схеме:</p>
  *
  * <ul>
@@ -15,74 +16,140 @@ import java.util.List;
  *     <li><b>added</b> – добавлен новый ключ, строка начинается с « + »;</li>
  *     <li><b>removed</b> – удалён ключ, строка начинается с « - »;</li>
  *     <li><b>updated</b> – ключ был изменен: сначала выводится старое значение
- *         (префикс « - »), затем новое значение (префикс « + »).</li>
+ *         (префикс « - »), затем новое значение (префикс « + »);</li>
+ *     <li><b>nested</b> – ключ указывает на объект на обеих сторонах: его различия
+ *         выводятся блоком «{…}» со сдвигом на четыре пробела;</li>
+ *     <li><b>nested list</b> – ключ указывает на список на обеих сторонах: изменившиеся
+ *         элементы выводятся блоком «[…]» с индексами вместо ключей.</li>
  * </ul>
  *
  * <p>Скобки «{…}» используются для обозначения начала и конца объекта.</p>
  */
 public class StylishFormatter implements Formatter {
 
+    /** Сдвиг каждого уровня вложенности. */
+    private static final int INDENT = 4;
+
+    @Override
+    public String name() {
+        return "stylish";
+    }
+
     /**
-     * Преобразует список узлов различий в строку формата «stylish».
+     * Открывает объект и возвращает писателя, выводящего узлы в формате «stylish».
      *
-     * @param diff список объектов {@link DiffNode}, представляющих изменения
-     * @return строка с отформатированным представлением изменений
+     * @param out выходной поток
+     * @return писатель узлов
+     * @throws IOException если запись не удалась
      */
     @Override
-    public String format(List<DiffNode> diff) {
-        // Инициализируем результат, открывая объект фигурной скобкой
-        StringBuilder result = new StringBuilder("{\n");
-
-        /* Проходим по каждому узлу различий. В зависимости от статуса
-         * (unchanged, added, removed, updated) формируем строку с нужным
-         * префиксом и значением */
-        for (DiffNode node : diff) {
-            switch (node.status()) {
-                /* Если ключ не изменился – выводим его без символов,
-                 * но сохраняем отступы для читабельности. */
-                case UNCHANGED ->
-                    result.append("    ")
-                                .append(node.key())
-                                .append(": ")
-                                .append(node.oldValue())
-                                .append("\n");
-
-                /* Для добавленных ключей ставим «+» и выводим новое значение */
-                case ADDED ->
-                    result.append("  + ")
-                                .append(node.key())
-                                .append(": ")
-                                .append(node.newValue())
-                                .append("\n");
-
-                /* Удалённые ключи помечаем «-» и выводим старое значение */
-                case REMOVED ->
-                    result.append("  - ")
-                                .append(node.key())
-                                .append(": ")
-                                .append(node.oldValue())
-                                .append("\n");
-
-                /* Обновлённый ключ выводится в двух строках: сначала
-                 * старая версия (с «-»), затем новая версия (с «+») */
-                case UPDATED -> {
-                    result.append("  - ")
-                            .append(node.key())
-                            .append(": ")
-                            .append(node.oldValue())
-                            .append("\n");
-                    result.append("  + ")
-                            .append(node.key())
-                            .append(": ")
-                            .append(node.newValue())
-                            .append("\n");
-                }
-                default -> throw new IllegalStateException("Unexpected status: " + node.status());
+    public DiffWriter writer(Writer out) throws IOException {
+        ValueAppender appender = new ValueAppender(out);
+        // Открываем объект фигурной скобкой
+        appender.append("{\n");
+
+        return new DiffWriter() {
+            // Уровень вложенных объектов, открытых через startNested
+            private int depth;
+
+            @Override
+            public void write(DiffNode node) throws IOException {
+                appendNode(appender, node, depth);
+            }
+
+            @Override
+            public boolean streamsNested() {
+                return true;
+            }
+
+            @Override
+            public void startNested(String key) throws IOException {
+                appendOpening(appender, key, depth++, ": {\n");
+            }
+
+            @Override
+            public void endNested() throws IOException {
+                appendClosing(appender, --depth, "    }\n");
+            }
+
+            @Override
+            public void finish() throws IOException {
+                // Закрываем объект фигурной скобкой
+                appender.append("}");
+            }
+        };
+    }
+
+    /**
+     * Выводит один узел и, для вложенного объекта, все его дочерние узлы.
+     *
+     * <p>Все части строки пишутся в выходной поток по отдельности: ни отступ,
+     * ни значение не собираются в промежуточную строку.</p>
+     *
+     * @param out   выходной поток
+     * @param node  узел diff
+     * @param depth уровень вложенности, от нуля
+     * @throws IOException если запись не удалась
+     */
+    private void appendNode(ValueAppender out, DiffNode node, int depth) throws IOException {
+        /* В зависимости от статуса (unchanged, added, removed, updated, nested)
+         * формируем строку с нужным префиксом и значением */
+        switch (node.status()) {
+            /* Если ключ не изменился – выводим его без символов,
+             * но сохраняем отступы для читабельности. */
+            case UNCHANGED -> appendLine(out, depth, "    ", node.key(), node.oldValue());
+
+            /* Для добавленных ключей ставим «+» и выводим новое значение */
+            case ADDED -> appendLine(out, depth, "  + ", node.key(), node.newValue());
+
+            /* Удалённые ключи помечаем «-» и выводим старое значение */
+            case REMOVED -> appendLine(out, depth, "  - ", node.key(), node.oldValue());
+
+            /* Обновлённый ключ выводится в двух строках: сначала
+             * старая версия (с «-»), затем новая версия (с «+») */
+            case UPDATED -> {
+                appendLine(out, depth, "  - ", node.key(), node.oldValue());
+                appendLine(out, depth, "  + ", node.key(), node.newValue());
             }
+
+            /* Вложенный объект выводится блоком в фигурных скобках,
+             * его ключи сдвигаются ещё на один уровень */
+            case NESTED -> appendBlock(out, node, depth, ": {\n", "    }\n");
+
+            /* Поэлементный diff списка выводится так же, но в квадратных скобках */
+            case NESTED_LIST -> appendBlock(out, node, depth, ": [\n", "    ]\n");
+            default -> throw new IllegalStateException("Unexpected status: " + node.status());
         }
+    }
+
+    private void appendBlock(ValueAppender out, DiffNode node, int depth, String open, String close)
+            throws IOException {
+        appendOpening(out, node.key(), depth, open);
+        for (DiffNode child : node.children()) {
+            appendNode(out, child, depth + 1);
+        }
+        appendClosing(out, depth, close);
+    }
+
+    private void appendOpening(ValueAppender out, String key, int depth, String open) throws IOException {
+        out.spaces(INDENT * depth);
+        out.append("    ");
+        out.append(key);
+        out.append(open);
+    }
+
+    private void appendClosing(ValueAppender out, int depth, String close) throws IOException {
+        out.spaces(INDENT * depth);
+        out.append(close);
+    }
 
-        // Закрываем объект фигурной скобкой
-        result.append("}");
-        return result.toString();
+    private void appendLine(ValueAppender out, int depth, String prefix, String key, Object value)
+            throws IOException {
+        out.spaces(INDENT * depth);
+        out.append(prefix);
+        out.append(key);
+        out.append(": ");
+        out.value(value);
+        out.append("\n");
     }
 }
@@ -0,0 +1,117 @@
+package hexlet.code.formatter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пишет значения и отступы прямо в {@link Writer}, не создавая промежуточных строк.
+ *
+ * <p>Целые числа выводятся через собственный буфер цифр, булевы значения и {@code null} —
+ * готовыми литералами, отступы — срезом заранее подготовленной строки пробелов.
+ * Двоичные значения ({@code byte[]} из Smile, CBOR и MessagePack) выводятся в Base64, как в JSON-выводе,
+ * в том числе внутри вложенных объектов и списков.
+ * Экземпляр хранит буфер, поэтому он свой у каждого {@link DiffWriter}.</p>
+ */
+final class ValueAppender {
+
+    private static final String SPACES = " ".repeat(128);
+    // Long.MIN_VALUE: 19 цифр и знак
+    private static final int MAX_LONG_DIGITS = 20;
+
+    private final Writer out;
+    private final char[] digits = new char[MAX_LONG_DIGITS];
+
+    ValueAppender(Writer out) {
+        this.out = out;
+    }
+
+    void append(String text) throws IOException {
+        out.write(text);
+    }
+
+    void spaces(int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, SPACES.length());
+            out.write(SPACES, 0, chunk);
+            remaining -= chunk;
+        }
+    }
+
+    /**
+     * Пишет значение так же, как {@link String#valueOf(Object)}, но {@code byte[]} — в Base64,
+     * а не как ссылку вида {@code [B@1b6d3586}.
+     *
+     * @param value значение
+     * @throws IOException если запись не удалась
+     */
+    void value(Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof String) {
+            out.write((String) value);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? "true" : "false");
+        } else if (value instanceof Integer || value instanceof Long) {
+            number(((Number) value).longValue());
+        } else if (value instanceof byte[]) {
+            out.write(Base64.getEncoder().encodeToString((byte[]) value));
+        } else if (value instanceof Map) {
+            map((Map<?, ?>) value);
+        } else if (value instanceof List) {
+            list((List<?>) value);
+        } else {
+            out.write(value.toString());
+        }
+    }
+
+    // Тот же вид, что у AbstractMap.toString(): {key=value, key=value}
+    private void map(Map<?, ?> map) throws IOException {
+        out.write('{');
+        Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<?, ?> entry = entries.next();
+            value(entry.getKey());
+            out.write('=');
+            value(entry.getValue());
+            if (entries.hasNext()) {
+                out.write(", ");
+            }
+        }
+        out.write('}');
+    }
+
+    // Тот же вид, что у AbstractCollection.toString(): [value, value]
+    private void list(List<?> list) throws IOException {
+        out.write('[');
+        Iterator<?> elements = list.iterator();
+        while (elements.hasNext()) {
+            value(elements.next());
+            if (elements.hasNext()) {
+                out.write(", ");
+            }
+        }
+        out.write(']');
+    }
+
+    private void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        long remaining = Math.abs(value);
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        out.write(digits, position, digits.length - position);
+    }
+}
@@ -0,0 +1,62 @@
+package hexlet.code.metrics;
+
+import hexlet.code.core.Status;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Метрики построения одного diff.
+ *
+ * @param wallNanos          время каждого выполненного этапа, нс; этапы разбора идут параллельно,
+ *                           поэтому сумма больше общего времени
+ * @param allocatedBytes     байты, выделенные потоком этапа, или -1, если JVM их не считает
+ * @param inputBytes         суммарный размер обоих входных файлов
+ * @param nodeCounts         число узлов diff каждого статуса, включая вложенные
+ * @param peakDocumentValues число значений (объектов, списков и скаляров) в большем из двух документов
+ */
+public record DiffMetrics(Map<Stage, Long> wallNanos, Map<Stage, Long> allocatedBytes, long inputBytes,
+                          Map<Status, Long> nodeCounts, long peakDocumentValues) {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    /**
+     * Возвращает метрики в читаемом виде, по строке на этап.
+     *
+     * @return текст для вывода в консоль
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder("gendiff stats:");
+        for (Map.Entry<Stage, Long> stage : wallNanos.entrySet()) {
+            long allocated = allocatedBytes.getOrDefault(stage.getKey(), -1L);
+            text.append(String.format(Locale.ROOT, "%n  %-13s %10.2f ms",
+                    stage.getKey().name().toLowerCase(Locale.ROOT), stage.getValue() / NANOS_PER_MILLI));
+            if (allocated >= 0) {
+                text.append(String.format(Locale.ROOT, "  %10.2f MB allocated", allocated / BYTES_PER_MB));
+            }
+        }
+        text.append(String.format(Locale.ROOT, "%n  input         %10d bytes", inputBytes));
+        text.append(String.format(Locale.ROOT, "%n  peak document %10d values", peakDocumentValues));
+        StringJoiner nodes = new StringJoiner(" ");
+        nodeCounts.forEach((status, count) -> nodes.add(status.name().toLowerCase(Locale.ROOT) + "=" + count));
+        text.append(String.format(Locale.ROOT, "%n  nodes         %s", nodes));
+        return text.toString();
+    }
+
+    /**
+     * Возвращает метрики одной строкой JSON, пригодной для файла JSON Lines.
+     *
+     * @return объект JSON
+     */
+    public String toJson() {
+        StringJoiner stages = new StringJoiner(",", "{", "}");
+        wallNanos.forEach((stage, nanos) -> stages.add("\"" + stage.name() + "\":{\"wallNanos\":" + nanos
+                + ",\"allocatedBytes\":" + allocatedBytes.getOrDefault(stage, -1L) + "}"));
+        StringJoiner nodes = new StringJoiner(",", "{", "}");
+        nodeCounts.forEach((status, count) -> nodes.add("\"" + status.name() + "\":" + count));
+        return "{\"stages\":" + stages + ",\"inputBytes\":" + inputBytes + ",\"nodes\":" + nodes
+                + ",\"peakDocumentValues\":" + peakDocumentValues + "}";
+    }
+}
@@ -0,0 +1,59 @@
+package hexlet.code.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Получатель метрик построения diff.
+ *
+ * <p>Вызывается один раз на каждый построенный diff, в потоке, который его построил. Реализация
+ * передаёт метрики в собственный сборщик; сеть для этого не нужна — есть готовые получатели
+ * для текстового вывода и файла JSON Lines.</p>
+ */
+@FunctionalInterface
+public interface MetricsListener {
+
+    /**
+     * Принимает метрики одного diff.
+     *
+     * @param metrics метрики
+     */
+    void onMetrics(DiffMetrics metrics);
+
+    /**
+     * Возвращает получателя, печатающего метрики в читаемом виде.
+     *
+     * @param out поток вывода, например {@code System.err}
+     * @return получатель метрик
+     */
+    static MetricsListener text(PrintStream out) {
+        return metrics -> out.println(metrics.toText());
+    }
+
+    /**
+     * Возвращает получателя, дописывающего метрики в файл строкой JSON (формат JSON Lines).
+     * Строки от разных потоков (пакетный режим, демон) не перемешиваются.
+     *
+     * @param file файл; создаётся, если его нет
+     * @return получатель метрик
+     */
+    static MetricsListener jsonLines(Path file) {
+        Object lock = new Object();
+        return metrics -> {
+            String line = metrics.toJson() + System.lineSeparator();
+            synchronized (lock) {
+                try {
+                    Files.writeString(file, line, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package hexlet.code.metrics;
+
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.DiffStat;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Замеряет этапы одного diff и передаёт итог {@link MetricsListener}.
+ *
+ * <p>Время этапа считается по {@link System#nanoTime()}, аллокации — по счётчику выделенной
+ * потоком памяти ({@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}).
+ * Каждый этап также записывается событием JFR {@code hexlet.code.DiffStage}, если запись JFR
+ * включена. Без получателя и без JFR замеры почти ничего не стоят: узлы и документы не
+ * обходятся, а событие не записывается.</p>
+ *
+ * <p>Этапы разбора выполняются в разных потоках, поэтому накопление потокобезопасно.</p>
+ */
+public final class MetricsRecorder {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final MetricsListener listener;
+    private final AtomicLongArray wallNanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray allocatedBytes = new AtomicLongArray(Stage.values().length);
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong peakDocumentValues = new AtomicLong();
+
+    private MetricsRecorder(MetricsListener listener) {
+        this.listener = listener;
+        for (int i = 0; i < wallNanos.length(); i++) {
+            wallNanos.set(i, -1);
+            allocatedBytes.set(i, -1);
+        }
+    }
+
+    /**
+     * Создаёт регистратор для одного diff.
+     *
+     * @param listener получатель итоговых метрик или {@code null}, если нужны только события JFR
+     * @return новый регистратор
+     */
+    public static MetricsRecorder start(MetricsListener listener) {
+        return new MetricsRecorder(listener);
+    }
+
+    /**
+     * Начинает замер этапа в текущем потоке.
+     *
+     * @param stage этап
+     * @param path  файл, который читается на этапе, или {@code null}
+     * @return замер; его нужно закрыть в том же потоке
+     */
+    public Span begin(Stage stage, String path) {
+        return new Span(stage, path);
+    }
+
+    /**
+     * Учитывает разобранный документ: запоминает число значений в большем из документов.
+     *
+     * @param document разобранный документ
+     */
+    public void document(Map<String, Object> document) {
+        if (listener != null) {
+            peakDocumentValues.accumulateAndGet(countValues(document), Math::max);
+        }
+    }
+
+    /**
+     * Завершает замеры и передаёт метрики получателю.
+     *
+     * @param diff построенный diff
+     */
+    public void finish(List<DiffNode> diff) {
+        if (listener == null) {
+            return;
+        }
+        Map<Stage, Long> wall = new EnumMap<>(Stage.class);
+        Map<Stage, Long> allocated = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            if (wallNanos.get(stage.ordinal()) >= 0) {
+                wall.put(stage, wallNanos.get(stage.ordinal()));
+                allocated.put(stage, allocatedBytes.get(stage.ordinal()));
+            }
+        }
+        DiffStat nodes = new DiffStat();
+        nodes.addAll(diff);
+        listener.onMetrics(new DiffMetrics(Collections.unmodifiableMap(wall), Collections.unmodifiableMap(allocated),
+                inputBytes.get(), Collections.unmodifiableMap(nodes.toMap()), peakDocumentValues.get()));
+    }
+
+    private static long countValues(Object document) {
+        // Обход без рекурсии: глубина документа не ограничена размером стека
+        long count = 1;
+        Deque<Object> containers = new ArrayDeque<>();
+        containers.push(document);
+        while (!containers.isEmpty()) {
+            Object container = containers.pop();
+            Iterable<?> children = container instanceof Map<?, ?> map ? map.values() : (List<?>) container;
+            for (Object child : children) {
+                count++;
+                if (child instanceof Map || child instanceof List) {
+                    containers.push(child);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long allocatedByCurrentThread() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * Замер одного этапа.
+     */
+    public final class Span implements AutoCloseable {
+
+        private final Stage stage;
+        private final StageEvent event;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Span(Stage stage, String path) {
+            this.stage = stage;
+            StageEvent stageEvent = new StageEvent();
+            if (stageEvent.isEnabled()) {
+                stageEvent.stage = stage.name();
+                stageEvent.path = path;
+                stageEvent.begin();
+                this.event = stageEvent;
+            } else {
+                this.event = null;
+            }
+            this.startAllocated = event != null || listener != null ? allocatedByCurrentThread() : -1;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Учитывает размер файла, читаемого на этом этапе.
+         *
+         * @param sizeBytes размер файла
+         */
+        public void input(long sizeBytes) {
+            inputBytes.addAndGet(sizeBytes);
+            if (event != null) {
+                event.inputBytes = sizeBytes;
+            }
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - startNanos;
+            long allocated = startAllocated >= 0 ? allocatedByCurrentThread() - startAllocated : -1;
+            wallNanos.set(stage.ordinal(), elapsed);
+            allocatedBytes.set(stage.ordinal(), allocated);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.allocatedBytes = allocated;
+                    event.commit();
+                }
+            }
+        }
+    }
+}
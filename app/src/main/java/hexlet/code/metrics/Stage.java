@@ -0,0 +1,15 @@
+package hexlet.code.metrics;
+
+/**
+ * Этапы построения diff, для которых измеряются время и аллокации.
+ */
+public enum Stage {
+    /** Чтение и разбор первого файла: файл отображается в память и читается прямо при разборе. */
+    PARSE_FIRST,
+    /** Чтение и разбор второго файла; идёт параллельно с {@link #PARSE_FIRST}. */
+    PARSE_SECOND,
+    /** Построение списка узлов diff. */
+    BUILD,
+    /** Форматирование и запись diff в выходной поток. */
+    FORMAT
+}
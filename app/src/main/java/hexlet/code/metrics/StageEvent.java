@@ -0,0 +1,36 @@
+package hexlet.code.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Событие JFR для одного этапа diff.
+ *
+ * <p>Записывается, если включена запись JFR ({@code -XX:StartFlightRecording}), независимо от
+ * {@code --stats}. Длительность события — время этапа, поток — тот, в котором этап выполнялся,
+ * поэтому выборки аллокаций JFR можно сопоставить с этапами.</p>
+ */
+@Name("hexlet.code.DiffStage")
+@Label("Diff Stage")
+@Category("gendiff")
+@Description("One stage of building a diff: parsing a side, building the diff or formatting it")
+final class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Path")
+    String path;
+
+    @Label("Input Size")
+    @DataAmount
+    long inputBytes;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,173 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import hexlet.code.core.CompactArray;
+import hexlet.code.core.CompactBuilder;
+import hexlet.code.core.CompactObject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Строит документ в компактной модели ({@link CompactObject}/{@link CompactArray}) из потока токенов.
+ *
+ * <p>Числа и булевы значения попадают в документ без упаковки. Ключи интернируются в пределах
+ * документа: у повторяющихся объектов (типичный массив записей) все ключи ссылаются на одни и те же строки.</p>
+ */
+final class CompactReader {
+
+    private final JsonParser parser;
+    private final Map<String, String> keys = new HashMap<>();
+
+    private CompactReader(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    static CompactObject readDocument(JsonParser parser) throws IOException {
+        return readDocument(parser, PathFilter.ALL);
+    }
+
+    /**
+     * Читает документ, пропуская на уровне токенов всё, что не проходит через фильтр.
+     *
+     * @param parser парсер, ещё не прочитавший ни одного токена
+     * @param filter фильтр путей
+     * @return документ
+     * @throws IOException если документ не удалось прочитать
+     */
+    static CompactObject readDocument(JsonParser parser, PathFilter filter) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected an object at the top level of the document");
+        }
+        CompactObject document = new CompactReader(parser).readObject(filter.root());
+        return document != null ? document : new CompactObject.Builder().build();
+    }
+
+    private CompactObject readObject() throws IOException {
+        CompactObject.Builder builder = new CompactObject.Builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            builder.key(keys.computeIfAbsent(key, k -> k));
+            parser.nextToken();
+            readValue(builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Читает объект, оставляя только ключи, которые пропускает фильтр.
+     *
+     * @param cursor положение объекта относительно фильтра
+     * @return объект или {@code null}, если объект лежит лишь на пути к включённым ключам
+     *         и ни одного не содержит
+     * @throws IOException если документ не удалось прочитать
+     */
+    private CompactObject readObject(PathFilter.Cursor cursor) throws IOException {
+        if (cursor.unrestricted()) {
+            return readObject();
+        }
+        CompactObject.Builder builder = new CompactObject.Builder();
+        boolean empty = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            parser.nextToken();
+            PathFilter.Cursor child = cursor.child(key);
+            if (child == null) {
+                // Поддерево исключено: Jackson пропускает его токены, не создавая значений
+                parser.skipChildren();
+            } else if (child.included() && !isContainer()) {
+                builder.key(keys.computeIfAbsent(key, k -> k));
+                readValue(builder);
+                empty = false;
+            } else if (isContainer()) {
+                Object value = readContainer(child);
+                if (value != null) {
+                    builder.key(keys.computeIfAbsent(key, k -> k));
+                    builder.addReference(value);
+                    empty = false;
+                }
+            }
+        }
+        return empty && !cursor.included() ? null : builder.build();
+    }
+
+    private CompactArray readArray(PathFilter.Cursor cursor) throws IOException {
+        if (cursor.unrestricted()) {
+            return readArray();
+        }
+        CompactArray.Builder builder = new CompactArray.Builder();
+        boolean empty = true;
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            PathFilter.Cursor child = cursor.child(Integer.toString(index++));
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.included() && !isContainer()) {
+                readValue(builder);
+                empty = false;
+            } else if (isContainer()) {
+                Object value = readContainer(child);
+                if (value != null) {
+                    builder.addReference(value);
+                    empty = false;
+                }
+            }
+        }
+        return empty && !cursor.included() ? null : builder.build();
+    }
+
+    private boolean isContainer() {
+        JsonToken token = parser.currentToken();
+        return token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+    }
+
+    private Object readContainer(PathFilter.Cursor cursor) throws IOException {
+        return parser.currentToken() == JsonToken.START_OBJECT ? readObject(cursor) : readArray(cursor);
+    }
+
+    private CompactArray readArray() throws IOException {
+        CompactArray.Builder builder = new CompactArray.Builder();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            readValue(builder);
+        }
+        return builder.build();
+    }
+
+    private void readValue(CompactBuilder builder) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            throw new IllegalArgumentException("Unexpected end of the document");
+        }
+        switch (token) {
+            case START_OBJECT -> builder.addReference(readObject());
+            case START_ARRAY -> builder.addReference(readArray());
+            case VALUE_STRING -> builder.addReference(parser.getText());
+            case VALUE_NUMBER_INT -> readInteger(builder);
+            case VALUE_NUMBER_FLOAT -> readFloat(builder);
+            case VALUE_TRUE -> builder.addBoolean(true);
+            case VALUE_FALSE -> builder.addBoolean(false);
+            case VALUE_NULL -> builder.addNull();
+            case VALUE_EMBEDDED_OBJECT -> builder.addReference(parser.getEmbeddedObject());
+            default -> throw new IllegalStateException("Unexpected token: " + token);
+        }
+    }
+
+    private void readInteger(CompactBuilder builder) throws IOException {
+        JsonParser.NumberType type = parser.getNumberType();
+        if (type == JsonParser.NumberType.INT || type == JsonParser.NumberType.LONG) {
+            builder.addLong(parser.getLongValue());
+        } else {
+            builder.addReference(parser.getNumberValue());
+        }
+    }
+
+    private void readFloat(CompactBuilder builder) throws IOException {
+        if (parser.getNumberType() == JsonParser.NumberType.DOUBLE) {
+            builder.addDouble(parser.getDoubleValue());
+        } else {
+            builder.addReference(parser.getNumberValue());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Форматы входных документов и их распознавание.
+ *
+ * <p>Формат файла определяется по первым байтам, а расширение служит подсказкой:
+ * однозначная сигнатура (заголовок Smile {@code :)\n}, тег самоописания CBOR {@code D9 D9 F7})
+ * важнее расширения, а без известного расширения формат угадывается по первому байту
+ * объекта верхнего уровня — у CBOR, MessagePack и текстового JSON их диапазоны не пересекаются.</p>
+ *
+ * <p>{@code ObjectMapper} формата создаётся при первом обращении: запуск, читающий только JSON,
+ * не платит за инициализацию остальных.</p>
+ */
+public enum DataFormat {
+    JSON(JsonFactory::new, "json", "jsonl", "ndjson"),
+    YAML(YAMLFactory::new, "yml", "yaml"),
+    SMILE(SmileFactory::new, "smile", "sml"),
+    CBOR(CBORFactory::new, "cbor"),
+    MESSAGE_PACK(MessagePackFactory::new, "msgpack", "mpk");
+
+    /** Сколько байтов начала файла читается для распознавания; у текста учитывает отступ перед «{». */
+    private static final int HEAD_SIZE = 64;
+    private static final int UTF8_BOM_SIZE = 3;
+
+    private final Supplier<JsonFactory> factory;
+    private final List<String> names;
+    private volatile ObjectMapper mapper;
+
+    DataFormat(Supplier<JsonFactory> factory, String... names) {
+        this.factory = factory;
+        this.names = List.of(names);
+    }
+
+    /**
+     * Возвращает формат по имени или расширению файла.
+     *
+     * @param name имя формата, например {@code json} или {@code cbor}
+     * @return формат
+     * @throws IllegalArgumentException если формат не поддерживается
+     */
+    public static DataFormat forName(String name) {
+        DataFormat format = lookup(name);
+        if (format == null) {
+            throw new IllegalArgumentException("Unsupported format: " + name);
+        }
+        return format;
+    }
+
+    /**
+     * Определяет формат файла по его первым байтам и расширению.
+     *
+     * @param path      путь к файлу
+     * @param extension расширение или другое имя формата; может быть неизвестным
+     * @return формат
+     * @throws IOException              если файл не удалось прочитать
+     * @throws IllegalArgumentException если формат не удалось определить
+     */
+    public static DataFormat detect(Path path, String extension) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(path)) {
+            head = in.readNBytes(HEAD_SIZE);
+        }
+        return detect(head, extension);
+    }
+
+    /**
+     * Определяет формат по первым байтам документа и расширению.
+     *
+     * @param head      первые байты документа
+     * @param extension расширение или другое имя формата; может быть неизвестным
+     * @return формат
+     * @throws IllegalArgumentException если формат не удалось определить
+     */
+    static DataFormat detect(byte[] head, String extension) {
+        if (startsWith(head, ':', ')', '\n')) {
+            return SMILE;
+        }
+        if (startsWith(head, 0xD9, 0xD9, 0xF7)) {
+            return CBOR;
+        }
+        DataFormat byName = lookup(extension);
+        if (byName != null) {
+            return byName;
+        }
+        DataFormat bySignature = head.length == 0 ? null : sniff(head);
+        if (bySignature == null) {
+            throw new IllegalArgumentException("Unsupported format: " + extension);
+        }
+        return bySignature;
+    }
+
+    /**
+     * Возвращает общий для всех вызывающих {@code ObjectMapper} формата.
+     *
+     * @return {@code ObjectMapper}, созданный при первом вызове
+     */
+    public ObjectMapper mapper() {
+        ObjectMapper result = mapper;
+        if (result == null) {
+            // Гонка безопасна: лишний экземпляр просто не сохранится
+            result = new ObjectMapper(factory.get());
+            mapper = result;
+        }
+        return result;
+    }
+
+    private static DataFormat lookup(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        for (DataFormat format : values()) {
+            if (format.names.contains(normalized)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static DataFormat sniff(byte[] head) {
+        int first = head[0] & 0xFF;
+        // Объект верхнего уровня: map в CBOR (major type 5) и MessagePack (fixmap, map16, map32)
+        if (first >= 0xA0 && first <= 0xBF) {
+            return CBOR;
+        }
+        if ((first >= 0x80 && first <= 0x8F) || first == 0xDE || first == 0xDF) {
+            return MESSAGE_PACK;
+        }
+        int offset = startsWith(head, 0xEF, 0xBB, 0xBF) ? UTF8_BOM_SIZE : 0;
+        while (offset < head.length && Character.isWhitespace(head[offset])) {
+            offset++;
+        }
+        return offset < head.length && head[offset] == '{' ? JSON : null;
+    }
+
+    private static boolean startsWith(byte[] head, int... prefix) {
+        if (head.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((head[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
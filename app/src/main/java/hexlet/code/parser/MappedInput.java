@@ -0,0 +1,54 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Открывает файл как поток байтов поверх отображения в память ({@link FileChannel#map}).
+ *
+ * <p>Байты файла отдаются парсеру Jackson напрямую, без копирования в {@code String}
+ * и без декодирования в UTF-16. Файлы больше 2 ГБ отображаются несколькими
+ * фрагментами, которые читаются последовательно.</p>
+ */
+public final class MappedInput {
+
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    private MappedInput() {
+    }
+
+    /**
+     * Отображает файл в память и возвращает поток для чтения его содержимого.
+     *
+     * <p>Канал закрывается сразу, отображение остаётся валидным до сборки мусора.</p>
+     *
+     * @param path путь к файлу
+     * @return поток байтов файла
+     * @throws IOException если файл не удалось открыть или отобразить
+     */
+    public static InputStream open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= MAX_CHUNK_SIZE) {
+                return new ByteBufferBackedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+
+            List<InputStream> chunks = new ArrayList<>();
+            for (long position = 0; position < size; position += MAX_CHUNK_SIZE) {
+                long chunkSize = Math.min(MAX_CHUNK_SIZE, size - position);
+                chunks.add(new ByteBufferBackedInputStream(
+                        channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize)));
+            }
+            return new SequenceInputStream(Collections.enumeration(chunks));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package hexlet.code.parser;
+
+import hexlet.code.core.CompactArray;
+import hexlet.code.core.CompactObject;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Кеш разобранных документов с вытеснением давно не использованных (LRU) по оценке занимаемой памяти.
+ *
+ * <p>Ключ — абсолютный путь, время изменения с точностью файловой системы, размер и контрольная сумма
+ * содержимого (CRC32C), а также формат: изменённый файл разбирается заново, даже если его переписали
+ * с тем же размером в пределах одного тика часов. Сумма считается по отображённому в память файлу
+ * аппаратной инструкцией, что на порядок дешевле разбора. Документы из кеша общие для всех
+ * вызывающих и не должны изменяться.
+ * Если один и тот же файл запрашивают одновременно несколько потоков, разбирает его только один,
+ * остальные ждут результата — так сравнение «один против многих» разбирает эталон один раз.</p>
+ */
+public final class ParseCache {
+
+    // Грубая оценка размера объектов на 64-битной JVM со сжатыми указателями
+    private static final long MAP_BYTES = 64;
+    private static final long MAP_ENTRY_BYTES = 56;
+    private static final long LIST_BYTES = 40;
+    private static final long LIST_ELEMENT_BYTES = 8;
+    private static final long STRING_BYTES = 40;
+    private static final long BOXED_BYTES = 16;
+    private static final long WIDE_BOXED_BYTES = 24;
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    private final long maxBytes;
+    private final boolean compact;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, CompletableFuture<Map<String, Object>>> loading = new HashMap<>();
+    private long currentBytes;
+
+    /**
+     * Создаёт кеш с ограничением по оценке занимаемой документами памяти.
+     *
+     * @param maxBytes максимальный суммарный размер документов в байтах
+     */
+    public ParseCache(long maxBytes) {
+        this(maxBytes, false);
+    }
+
+    /**
+     * Создаёт кеш, разбирающий документы в обычную или компактную модель.
+     *
+     * @param maxBytes максимальный суммарный размер документов в байтах
+     * @param compact  разбирать ли документы через {@link Parser#parseCompact(Path, String)}
+     */
+    public ParseCache(long maxBytes, boolean compact) {
+        this.maxBytes = maxBytes;
+        this.compact = compact;
+    }
+
+    private record Key(Path path, long modifiedNanos, long size, long checksum, String format, PathFilter filter) {
+    }
+
+    private record Entry(Map<String, Object> document, long bytes) {
+    }
+
+    /**
+     * Возвращает разобранный документ из кеша или разбирает файл через {@link Parser#parse(Path, String)}.
+     *
+     * @param path   путь к файлу
+     * @param format формат файла
+     * @return разобранный документ; изменять его нельзя
+     * @throws Exception если файл не удалось прочитать или разобрать
+     */
+    public Map<String, Object> parse(Path path, String format) throws Exception {
+        return parse(path, format, PathFilter.ALL);
+    }
+
+    /**
+     * Возвращает документ, разобранный с фильтром путей; документы с разными фильтрами кешируются отдельно.
+     *
+     * @param path   путь к файлу
+     * @param format формат файла
+     * @param filter фильтр путей
+     * @return разобранный документ; изменять его нельзя
+     * @throws Exception если файл не удалось прочитать или разобрать
+     */
+    public Map<String, Object> parse(Path path, String format, PathFilter filter) throws Exception {
+        Path absolute = path.toAbsolutePath();
+        BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+        Key key = new Key(absolute, attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size(),
+                checksum(absolute), format, filter);
+
+        CompletableFuture<Map<String, Object>> future;
+        boolean owner;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                return cached.document();
+            }
+            future = loading.get(key);
+            owner = future == null;
+            if (owner) {
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+            }
+        }
+        return owner ? load(key, future) : await(future);
+    }
+
+    /**
+     * Возвращает текущую оценку памяти, занятой документами в кеше.
+     *
+     * @return размер в байтах
+     */
+    public synchronized long size() {
+        return currentBytes;
+    }
+
+    private Map<String, Object> load(Key key, CompletableFuture<Map<String, Object>> future) throws Exception {
+        try {
+            Map<String, Object> document = compact
+                    ? Parser.parseCompact(key.path(), key.format(), key.filter())
+                    : Parser.parse(key.path(), key.format(), key.filter());
+            // Оценка обходит весь документ, поэтому считается до захвата монитора кеша
+            store(key, document, estimate(document));
+            future.complete(document);
+            return document;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                loading.remove(key);
+            }
+        }
+    }
+
+    private synchronized void store(Key key, Map<String, Object> document, long bytes) {
+        if (bytes > maxBytes) {
+            return;
+        }
+        entries.put(key, new Entry(document, bytes));
+        currentBytes += bytes;
+
+        // Порядок доступа в LinkedHashMap: первыми идут давно не использованные документы
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            currentBytes -= iterator.next().bytes();
+            iterator.remove();
+        }
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static long checksum(Path path) throws IOException {
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_CHUNK_SIZE) {
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAX_CHUNK_SIZE, size - position)));
+            }
+        }
+        return checksum.getValue();
+    }
+
+    private static long estimate(Object value) {
+        // Компактная модель оценивает себя сама: примитивы в ней не упакованы
+        if (value instanceof CompactObject object) {
+            return object.estimateBytes(ParseCache::estimate);
+        }
+        if (value instanceof CompactArray array) {
+            return array.estimateBytes(ParseCache::estimate);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            long bytes = MAP_BYTES + MAP_ENTRY_BYTES * map.size();
+            // Строки ключей не считаются: Jackson канонизирует имена полей, и они общие для всего документа
+            for (Object element : map.values()) {
+                bytes += estimate(element);
+            }
+            return bytes;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            long bytes = LIST_BYTES + LIST_ELEMENT_BYTES * list.size();
+            for (Object element : list) {
+                bytes += estimate(element);
+            }
+            return bytes;
+        }
+        if (value instanceof String) {
+            return STRING_BYTES + ((String) value).length();
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return WIDE_BOXED_BYTES;
+        }
+        return value == null || value instanceof Boolean ? 0 : BOXED_BYTES;
+    }
+}
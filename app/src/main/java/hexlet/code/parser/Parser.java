@@ -1,30 +1,179 @@
 package hexlet.code.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 public class Parser {
 
-    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
-    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+    private static final TypeReference<Map<String, Object>> MUTABLE_DOCUMENT = new TypeReference<>() {
+    };
 
     public static Map<String, Object> parse(String content, String format) throws Exception {
-        ObjectMapper mapper = getMapper(format);
-        return mapper.readValue(content, new TypeReference<Map<String, Object>>() { });
+        return parse(content, format, PathFilter.ALL);
     }
 
-    private static ObjectMapper getMapper(String format) {
-        String normalizedFormat = format.toLowerCase();
-        if ("json".equals(normalizedFormat)) {
-            return JSON_MAPPER;
+    /**
+     * Разбирает документ из строки, пропуская пути, которые не проходят через фильтр.
+     *
+     * @param content содержимое документа
+     * @param format  формат документа
+     * @param filter  фильтр путей
+     * @return документ
+     * @throws Exception если документ не удалось разобрать
+     */
+    public static Map<String, Object> parse(String content, String format, PathFilter filter) throws Exception {
+        try (JsonParser parser = getMapper(format).createParser(content)) {
+            return TreeReader.readDocument(parser, filter);
+        }
+    }
+
+    public static Map<String, Object> parse(Path path, String format) throws Exception {
+        return parse(path, format, PathFilter.ALL);
+    }
+
+    /**
+     * Разбирает файл, пропуская пути, которые не проходят через фильтр: исключённые поддеревья
+     * не материализуются.
+     *
+     * @param path   путь к файлу
+     * @param format формат файла
+     * @param filter фильтр путей
+     * @return документ
+     * @throws Exception если файл не удалось прочитать или разобрать
+     */
+    public static Map<String, Object> parse(Path path, String format, PathFilter filter) throws Exception {
+        try (JsonParser parser = createParser(path, format)) {
+            return TreeReader.readDocument(parser, filter);
+        }
+    }
+
+    /**
+     * Разбирает документ из уже прочитанных байтов; формат определяется так же, как для файла
+     * (см. {@link DataFormat#detect(Path, String)}).
+     *
+     * <p>В отличие от чтения по пути, байты не отображаются в память: файл, который меняют
+     * во время разбора, не может оборвать чтение ошибкой доступа к памяти.</p>
+     *
+     * @param content содержимое документа
+     * @param format  расширение файла или имя формата
+     * @param filter  фильтр путей
+     * @return документ
+     * @throws Exception если документ не удалось разобрать
+     */
+    public static Map<String, Object> parse(byte[] content, String format, PathFilter filter) throws Exception {
+        try (JsonParser parser = DataFormat.detect(content, format).mapper().createParser(content)) {
+            return TreeReader.readDocument(parser, filter);
+        }
+    }
+
+    /**
+     * Читает документ в компактную модель: примитивы без упаковки, ключи интернированы,
+     * поиск по ключу — двоичный по заранее отсортированным ключам.
+     *
+     * @param path   путь к файлу
+     * @param format формат файла ({@code json}, {@code yml} или {@code yaml})
+     * @return документ как {@link hexlet.code.core.CompactObject}
+     * @throws IOException если файл не удалось прочитать
+     */
+    public static Map<String, Object> parseCompact(Path path, String format) throws IOException {
+        return parseCompact(path, format, PathFilter.ALL);
+    }
+
+    /**
+     * Читает файл в компактную модель, пропуская пути, которые не проходят через фильтр.
+     *
+     * @param path   путь к файлу
+     * @param format формат файла
+     * @param filter фильтр путей
+     * @return документ как {@link hexlet.code.core.CompactObject}
+     * @throws IOException если файл не удалось прочитать
+     */
+    public static Map<String, Object> parseCompact(Path path, String format, PathFilter filter) throws IOException {
+        try (JsonParser parser = createParser(path, format)) {
+            return CompactReader.readDocument(parser, filter);
         }
-        if ("yml".equals(normalizedFormat) || "yaml".equals(normalizedFormat)) {
-            return YAML_MAPPER;
+    }
+
+    /**
+     * Читает уже прочитанные байты документа в компактную модель, пропуская пути,
+     * которые не проходят через фильтр.
+     *
+     * @param content содержимое документа
+     * @param format  расширение файла или имя формата
+     * @param filter  фильтр путей
+     * @return документ как {@link hexlet.code.core.CompactObject}
+     * @throws IOException если документ не удалось разобрать
+     */
+    public static Map<String, Object> parseCompact(byte[] content, String format, PathFilter filter)
+            throws IOException {
+        try (JsonParser parser = DataFormat.detect(content, format).mapper().createParser(content)) {
+            return CompactReader.readDocument(parser, filter);
+        }
+    }
+
+    /**
+     * Читает документ из строки в компактную модель.
+     *
+     * @param content содержимое документа
+     * @param format  формат документа
+     * @return документ как {@link hexlet.code.core.CompactObject}
+     * @throws IOException если документ не удалось разобрать
+     */
+    public static Map<String, Object> parseCompact(String content, String format) throws IOException {
+        try (JsonParser parser = getMapper(format).createParser(content)) {
+            return CompactReader.readDocument(parser);
+        }
+    }
+
+    /**
+     * Читает документ в обычные изменяемые {@code LinkedHashMap} и {@code ArrayList}, без структурных хешей:
+     * такой документ можно менять на месте, например накладывая на него патч.
+     *
+     * @param path   путь к файлу
+     * @param format расширение файла или имя формата
+     * @return изменяемый документ
+     * @throws IOException если файл не удалось прочитать
+     */
+    public static Map<String, Object> parseMutable(Path path, String format) throws IOException {
+        try (JsonParser parser = createParser(path, format)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an object at the top level of the document");
+            }
+            return parser.readValueAs(MUTABLE_DOCUMENT);
         }
+    }
+
+    /**
+     * Открывает файл для чтения токенами; формат определяется по первым байтам файла,
+     * а {@code format} служит подсказкой (см. {@link DataFormat#detect(Path, String)}).
+     *
+     * @param path   путь к файлу
+     * @param format расширение файла или имя формата
+     * @return парсер, ещё не прочитавший ни одного токена
+     * @throws IOException если файл не удалось прочитать
+     */
+    public static JsonParser createParser(Path path, String format) throws IOException {
+        return DataFormat.detect(path, format).mapper().createParser(MappedInput.open(path));
+    }
 
-        throw new IllegalArgumentException("Unsupported format: " + format);
+    /**
+     * Читает значение, на первом токене которого стоит парсер, вычисляя структурные хеши поддеревьев.
+     *
+     * @param parser парсер, созданный {@link #createParser}
+     * @return прочитанное значение
+     * @throws IOException если документ не удалось прочитать
+     */
+    public static Object readValue(JsonParser parser) throws IOException {
+        return TreeReader.readValue(parser);
+    }
+
+    private static ObjectMapper getMapper(String format) {
+        return DataFormat.forName(format).mapper();
     }
 }
@@ -0,0 +1,294 @@
+package hexlet.code.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Отбор путей документа, применяемый прямо при разборе.
+ *
+ * <p>Путь задаётся через точку ({@code services.*.resources}) или как JSON Pointer
+ * ({@code /services/*}{@code /resources}). Сегмент {@code *} совпадает с любым ключом или индексом
+ * элемента списка, {@code **} — с любым числом сегментов, {@code *} и {@code ?} внутри сегмента через
+ * точку работают как в glob ({@code build*}), а {@code \} экранирует следующий символ, в том числе точку
+ * в ключе ({@code metadata.labels.app\.kubernetes\.io/name}).
+ * В JSON Pointer сегменты буквальные, кроме {@code *} и {@code **}, а {@code ~0} и {@code ~1} означают
+ * {@code ~} и {@code /}.</p>
+ *
+ * <p>Исключённое поддерево и ключи вне включённых путей пропускаются на уровне токенов
+ * ({@code JsonParser.skipChildren()}): они не попадают в документ и не сравниваются. Если путей для
+ * включения нет, включено всё. Объект или список на пути к включённому пути остаётся в документе,
+ * только если в нём нашлось что-то включённое.</p>
+ */
+public final class PathFilter {
+
+    /** Фильтр без условий: документ читается целиком. */
+    public static final PathFilter ALL = new PathFilter(List.of(), List.of());
+
+    private static final String ANY_DEPTH = "**";
+    // Позиция в шаблоне хранится в младших битах состояния, номер шаблона — в старших
+    private static final int POSITION_BITS = 16;
+    private static final int POSITION_MASK = (1 << POSITION_BITS) - 1;
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final String[][] includePatterns;
+    private final String[][] excludePatterns;
+    private final Cursor root;
+
+    private PathFilter(List<String> includes, List<String> excludes) {
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.includePatterns = compile(this.includes);
+        this.excludePatterns = compile(this.excludes);
+        this.root = new Cursor(start(includePatterns), includePatterns.length == 0, start(excludePatterns));
+    }
+
+    /**
+     * Создаёт фильтр из путей для включения и исключения.
+     *
+     * @param includes пути, которые нужно сравнивать; пустой список — весь документ
+     * @param excludes пути, которые нужно пропустить; исключение сильнее включения
+     * @return фильтр или {@link #ALL}, если условий нет
+     * @throws IllegalArgumentException если путь пуст, слишком длинный или оканчивается на {@code \}
+     */
+    public static PathFilter of(List<String> includes, List<String> excludes) {
+        return includes.isEmpty() && excludes.isEmpty() ? ALL : new PathFilter(includes, excludes);
+    }
+
+    public boolean isEmpty() {
+        return this == ALL;
+    }
+
+    Cursor root() {
+        return root;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PathFilter filter
+                && includes.equals(filter.includes)
+                && excludes.equals(filter.excludes);
+    }
+
+    @Override
+    public int hashCode() {
+        return includes.hashCode() * 31 + excludes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PathFilter[includes=" + includes + ", excludes=" + excludes + "]";
+    }
+
+    private static String[][] compile(List<String> paths) {
+        String[][] patterns = new String[paths.size()][];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = segments(paths.get(i));
+            if (patterns[i].length >= POSITION_MASK) {
+                throw new IllegalArgumentException("Path is too long: " + paths.get(i));
+            }
+        }
+        return patterns;
+    }
+
+    private static String[] segments(String path) {
+        if (path.isEmpty() || "/".equals(path)) {
+            throw new IllegalArgumentException("Empty path in a filter");
+        }
+        if (!path.startsWith("/")) {
+            return dottedSegments(path);
+        }
+        String[] segments = path.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            // Буквальный сегмент указателя: экранируем символы glob, чтобы они не стали шаблоном
+            segments[i] = "*".equals(segment) || ANY_DEPTH.equals(segment)
+                    ? segment
+                    : segment.replace("~1", "/").replace("~0", "~").replaceAll("([*?\\\\])", "\\\\$1");
+        }
+        return segments;
+    }
+
+    // Экранирование сохраняется в сегменте: glob сравнивает экранированный символ буквально
+    private static String[] dottedSegments(String path) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == path.length()) {
+                    throw new IllegalArgumentException("Dangling escape at the end of path: " + path);
+                }
+                segment.append(c).append(path.charAt(++i));
+            } else if (c == '.') {
+                segments.add(segment.toString());
+                segment.setLength(0);
+            } else {
+                segment.append(c);
+            }
+        }
+        segments.add(segment.toString());
+        return segments.toArray(new String[0]);
+    }
+
+    private static int[] start(String[][] patterns) {
+        int[] states = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            states[i] = i << POSITION_BITS;
+        }
+        return closure(patterns, states, states.length);
+    }
+
+    // Добавляет к состояниям те, в которых ** совпал с пустой последовательностью сегментов
+    private static int[] closure(String[][] patterns, int[] states, int size) {
+        int[] result = Arrays.copyOf(states, Math.max(size, 1));
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            int state = result[i];
+            String[] pattern = patterns[state >>> POSITION_BITS];
+            int position = state & POSITION_MASK;
+            if (position < pattern.length && ANY_DEPTH.equals(pattern[position])
+                    && !contains(result, count, state + 1)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = state + 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] step(String[][] patterns, int[] states, String segment) {
+        int[] next = new int[states.length * 2];
+        int count = 0;
+        for (int state : states) {
+            String[] pattern = patterns[state >>> POSITION_BITS];
+            int position = state & POSITION_MASK;
+            if (position == pattern.length) {
+                continue;
+            }
+            if (ANY_DEPTH.equals(pattern[position])) {
+                // ** поглощает сегмент и остаётся на месте; переход дальше даёт closure
+                if (!contains(next, count, state)) {
+                    next[count++] = state;
+                }
+            } else if (matches(pattern[position], segment) && !contains(next, count, state + 1)) {
+                next[count++] = state + 1;
+            }
+        }
+        return closure(patterns, next, count);
+    }
+
+    private static boolean matched(String[][] patterns, int[] states) {
+        for (int state : states) {
+            if ((state & POSITION_MASK) == patterns[state >>> POSITION_BITS].length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] states, int size, int state) {
+        for (int i = 0; i < size; i++) {
+            if (states[i] == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Два указателя с возвратом к последней *: время O(длина шаблона * длина сегмента), без рекурсии
+    private static boolean matches(String pattern, String segment) {
+        int p = 0;
+        int t = 0;
+        int star = -1;
+        int resume = 0;
+        while (t < segment.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                resume = t;
+                continue;
+            }
+            if (p < pattern.length()) {
+                char c = pattern.charAt(p);
+                boolean escaped = c == '\\' && p + 1 < pattern.length();
+                if (escaped) {
+                    c = pattern.charAt(p + 1);
+                }
+                if (c == segment.charAt(t) || !escaped && c == '?') {
+                    p += escaped ? 2 : 1;
+                    t++;
+                    continue;
+                }
+            }
+            if (star < 0) {
+                return false;
+            }
+            // Последняя * поглощает ещё один символ, и сравнение продолжается сразу за ней
+            p = star + 1;
+            t = ++resume;
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * Положение читателя в документе относительно шаблонов фильтра.
+     */
+    final class Cursor {
+
+        private final int[] includeStates;
+        private final boolean included;
+        private final int[] excludeStates;
+
+        private Cursor(int[] includeStates, boolean included, int[] excludeStates) {
+            this.includeStates = includeStates;
+            this.included = included;
+            this.excludeStates = excludeStates;
+        }
+
+        /**
+         * Переходит к значению ключа или элемента списка.
+         *
+         * @param segment ключ или индекс элемента
+         * @return положение для значения или {@code null}, если значение нужно пропустить
+         */
+        Cursor child(String segment) {
+            int[] excluded = excludeStates.length == 0
+                    ? excludeStates
+                    : step(excludePatterns, excludeStates, segment);
+            if (matched(excludePatterns, excluded)) {
+                return null;
+            }
+            if (included) {
+                return new Cursor(includeStates, true, excluded);
+            }
+            int[] next = step(includePatterns, includeStates, segment);
+            if (matched(includePatterns, next)) {
+                return new Cursor(new int[0], true, excluded);
+            }
+            return next.length == 0 ? null : new Cursor(next, false, excluded);
+        }
+
+        /**
+         * Проверяет, включено ли значение целиком, а не только как путь к включённым потомкам.
+         *
+         * @return {@code true}, если значение совпало с путём для включения или лежит под ним
+         */
+        boolean included() {
+            return included;
+        }
+
+        /**
+         * Проверяет, что ни одно условие фильтра не действует ниже этого места.
+         *
+         * @return {@code true}, если значение можно читать целиком без проверок
+         */
+        boolean unrestricted() {
+            return included && excludeStates.length == 0;
+        }
+    }
+}
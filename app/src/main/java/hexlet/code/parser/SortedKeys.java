@@ -0,0 +1,261 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Документ, ключи каждого объекта которого идут в порядке возрастания и не повторяются.
+ *
+ * <p>Этого требует потоковое сравнение ({@link hexlet.code.core.StreamingDiffBuilder}). Сначала файл
+ * просматривается один раз, и запоминаются номера объектов с нарушенным порядком или повторами ключей.
+ * Если таких нет, документ читается как есть. Иначе он переписывается во временный файл Smile:
+ * упорядоченные объекты копируются по токенам, а значения неупорядоченного объекта сбрасываются
+ * в отдельный временный файл и переписываются оттуда в порядке ключей. Из повторяющихся ключей
+ * остаётся последний, как при обычном разборе.</p>
+ *
+ * <p>В памяти держатся только ключи и смещения значений неупорядоченных объектов на пути от корня
+ * до текущего значения и по биту на каждый объект документа; сами значения остаются на диске.
+ * Временные файлы удаляет {@link #close()}.</p>
+ */
+public final class SortedKeys implements Closeable {
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    private static final Comparator<Entry> BY_KEY = Comparator.comparing(Entry::key);
+
+    private final Path path;
+    private final DataFormat format;
+    private final Path sorted;
+
+    private SortedKeys(Path path, DataFormat format, Path sorted) {
+        this.path = path;
+        this.format = format;
+        this.sorted = sorted;
+    }
+
+    private record Entry(String key, long offset) {
+    }
+
+    /**
+     * Проверяет порядок ключей в файле и при необходимости переписывает его с отсортированными ключами.
+     *
+     * @param path   путь к файлу
+     * @param format расширение файла или имя формата (см. {@link DataFormat#detect(Path, String)})
+     * @return документ с упорядоченными ключами; закрыть после использования
+     * @throws IOException если файл не удалось прочитать или временный файл — записать
+     */
+    public static SortedKeys open(Path path, String format) throws IOException {
+        DataFormat detected = DataFormat.detect(path, format);
+        BitSet unsorted;
+        try (JsonParser parser = detected.mapper().createParser(MappedInput.open(path))) {
+            unsorted = unsortedObjects(parser);
+        }
+        if (unsorted.isEmpty()) {
+            return new SortedKeys(path, detected, null);
+        }
+        Path sorted = Files.createTempFile("gendiff-sorted", ".smile");
+        try (JsonParser parser = detected.mapper().createParser(MappedInput.open(path));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(sorted), IO_BUFFER_SIZE);
+             JsonGenerator generator = DataFormat.SMILE.mapper().createGenerator(out)) {
+            Copier copier = new Copier(unsorted);
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                copier.copyValue(parser, generator);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(sorted);
+            throw e;
+        }
+        return new SortedKeys(path, detected, sorted);
+    }
+
+    /**
+     * Создаёт парсер документа с упорядоченными ключами.
+     *
+     * @return парсер, ещё не прочитавший ни одного токена
+     * @throws IOException если файл не удалось открыть
+     */
+    public JsonParser createParser() throws IOException {
+        if (sorted == null) {
+            return format.mapper().createParser(MappedInput.open(path));
+        }
+        return DataFormat.SMILE.mapper().createParser(MappedInput.open(sorted));
+    }
+
+    /**
+     * Проверяет, пришлось ли переписать документ.
+     *
+     * @return {@code true}, если ключи хотя бы одного объекта были не по порядку или повторялись
+     */
+    public boolean rewritten() {
+        return sorted != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sorted != null) {
+            Files.deleteIfExists(sorted);
+        }
+    }
+
+    /**
+     * Находит объекты, ключи которых идут не по возрастанию или повторяются.
+     *
+     * @param parser парсер, ещё не прочитавший ни одного токена
+     * @return номера таких объектов в порядке их начала в документе, от нуля
+     * @throws IOException если документ не удалось прочитать
+     */
+    static BitSet unsortedObjects(JsonParser parser) throws IOException {
+        BitSet unsorted = new BitSet();
+        Deque<OpenObject> open = new ArrayDeque<>();
+        int objects = 0;
+        for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+            if (token == JsonToken.START_OBJECT) {
+                open.push(new OpenObject(objects++));
+            } else if (token == JsonToken.END_OBJECT) {
+                open.pop();
+            } else if (token == JsonToken.FIELD_NAME) {
+                OpenObject current = open.peek();
+                String key = parser.currentName();
+                if (current.lastKey != null && current.lastKey.compareTo(key) >= 0) {
+                    unsorted.set(current.number);
+                }
+                current.lastKey = key;
+            }
+        }
+        return unsorted;
+    }
+
+    private static final class OpenObject {
+
+        private final int number;
+        private String lastKey;
+
+        OpenObject(int number) {
+            this.number = number;
+        }
+    }
+
+    /**
+     * Копирует значения, переставляя ключи отмеченных объектов.
+     */
+    private static final class Copier {
+
+        private final BitSet unsorted;
+        // Номер следующего объекта; объекты нумеруются в том же порядке, что и при просмотре
+        private int objects;
+
+        Copier(BitSet unsorted) {
+            this.unsorted = unsorted;
+        }
+
+        // Парсер стоит на первом токене значения; после копирования — на последнем
+        void copyValue(JsonParser parser, JsonGenerator generator) throws IOException {
+            switch (parser.currentToken()) {
+                case START_OBJECT -> {
+                    if (unsorted.get(objects++)) {
+                        copySorted(parser, generator);
+                    } else {
+                        generator.writeStartObject();
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            generator.writeFieldName(parser.currentName());
+                            parser.nextToken();
+                            copyValue(parser, generator);
+                        }
+                        generator.writeEndObject();
+                    }
+                }
+                case START_ARRAY -> {
+                    generator.writeStartArray();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        copyValue(parser, generator);
+                    }
+                    generator.writeEndArray();
+                }
+                default -> generator.copyCurrentEvent(parser);
+            }
+        }
+
+        private void copySorted(JsonParser parser, JsonGenerator generator) throws IOException {
+            Path scratch = Files.createTempFile("gendiff-object", ".smile");
+            try (FileChannel channel = FileChannel.open(scratch, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+                List<Entry> entries = stage(parser, channel);
+                entries.sort(BY_KEY);
+                generator.writeStartObject();
+                for (int i = 0; i < entries.size(); i++) {
+                    Entry entry = entries.get(i);
+                    // Сортировка устойчива: из повторяющихся ключей последним стоит последний в документе
+                    if (i + 1 < entries.size() && entries.get(i + 1).key().equals(entry.key())) {
+                        continue;
+                    }
+                    generator.writeFieldName(entry.key());
+                    channel.position(entry.offset());
+                    try (JsonParser value = DataFormat.SMILE.mapper().createParser(Channels.newInputStream(channel))) {
+                        // Поток над каналом закрыл бы и сам канал, а с ним и временный файл
+                        value.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                        value.nextToken();
+                        generator.copyCurrentStructure(value);
+                    }
+                }
+                generator.writeEndObject();
+            }
+        }
+
+        // Пишет значения объекта в scratch, каждое отдельным документом, и возвращает их ключи и смещения
+        private List<Entry> stage(JsonParser parser, FileChannel channel) throws IOException {
+            List<Entry> entries = new ArrayList<>();
+            CountingOutput out = new CountingOutput(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), IO_BUFFER_SIZE));
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                entries.add(new Entry(parser.currentName(), out.count));
+                parser.nextToken();
+                // Свой генератор на каждое значение: документ читается с его смещения без общих таблиц имён
+                try (JsonGenerator value = DataFormat.SMILE.mapper().createGenerator(out)) {
+                    value.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    value.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+                    copyValue(parser, value);
+                }
+            }
+            out.flush();
+            return entries;
+        }
+    }
+
+    private static final class CountingOutput extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutput(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
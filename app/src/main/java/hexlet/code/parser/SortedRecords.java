@@ -0,0 +1,283 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Записи файла (JSON Lines, несколько документов YAML), отсортированные по значению ключевого поля.
+ *
+ * <p>Сортировка внешняя: записи копятся в памяти, пока их исходный размер не превысит {@code runBytes},
+ * затем сортируются и сбрасываются во временный файл Smile (серия). Серии сливаются через очередь
+ * с приоритетом; если серий больше {@link #MAX_FAN_IN}, они сначала сливаются группами в более длинные.
+ * Поэтому память ограничена одной серией и буферами открытых файлов, а не размером входа.
+ * Если весь файл уместился в одну серию, на диск ничего не пишется.</p>
+ *
+ * <p>Ключи сравниваются как строки ({@code 10} идёт перед {@code 9}); это порядок вывода diff.
+ * Ключ должен быть у каждой записи и не должен повторяться. Временные файлы удаляет {@link #close()}.</p>
+ */
+public final class SortedRecords implements Closeable {
+
+    /** Размер серии по умолчанию: сколько байтов входа сортируется в памяти за раз. */
+    public static final long DEFAULT_RUN_BYTES = 64L << 20;
+    /** Сколько серий сливается за один проход. */
+    static final int MAX_FAN_IN = 64;
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    private static final Comparator<Keyed> BY_KEY = Comparator.comparing(Keyed::key);
+
+    private final String keyField;
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<Closeable> openRuns = new ArrayList<>();
+    private RecordSource source;
+    private Keyed current;
+
+    private SortedRecords(String keyField) {
+        this.keyField = keyField;
+    }
+
+    private record Keyed(String key, Map<String, Object> record) {
+    }
+
+    /**
+     * Читает и сортирует записи файла.
+     *
+     * @param path     путь к файлу
+     * @param format   расширение файла или имя формата (см. {@link DataFormat#detect(Path, String)})
+     * @param keyField поле верхнего уровня записи, по которому записи сопоставляются
+     * @param runBytes сколько байтов входа сортировать в памяти, прежде чем сбросить серию на диск
+     * @return записи в порядке ключей; закрыть после использования
+     * @throws IOException если файл не удалось прочитать или временный файл — записать
+     */
+    public static SortedRecords sort(Path path, String format, String keyField, long runBytes) throws IOException {
+        SortedRecords records = new SortedRecords(keyField);
+        try (JsonParser parser = createParser(path, format)) {
+            records.source = records.split(parser, runBytes);
+        } catch (IOException | RuntimeException e) {
+            records.close();
+            throw e;
+        }
+        return records;
+    }
+
+    /**
+     * Переходит к следующей записи.
+     *
+     * @return {@code false}, если записей больше нет
+     * @throws IOException           если серию не удалось прочитать
+     * @throws IllegalStateException если ключ повторяется
+     */
+    public boolean next() throws IOException {
+        Keyed previous = current;
+        current = source.next();
+        if (current != null && previous != null && previous.key().equals(current.key())) {
+            throw new IllegalStateException("Duplicate record key '" + current.key() + "'");
+        }
+        return current != null;
+    }
+
+    public String key() {
+        return current.key();
+    }
+
+    public Map<String, Object> record() {
+        return current.record();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Closeable run : openRuns) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        for (Path run : runFiles) {
+            Files.deleteIfExists(run);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static JsonParser createParser(Path path, String format) throws IOException {
+        return DataFormat.detect(path, format).mapper().createParser(MappedInput.open(path));
+    }
+
+    private RecordSource split(JsonParser parser, long runBytes) throws IOException {
+        List<Keyed> buffer = new ArrayList<>();
+        List<Path> runs = new ArrayList<>();
+        long runStart = offset(parser.currentLocation());
+        for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an object for every record, got " + token);
+            }
+            buffer.add(keyed(TreeReader.readObject(parser)));
+            // Объём серии оценивается по байтам входа: это дешевле, чем оценивать размер объектов
+            if (offset(parser.currentLocation()) - runStart >= runBytes) {
+                runs.add(writeRun(buffer));
+                buffer.clear();
+                runStart = offset(parser.currentLocation());
+            }
+        }
+        if (runs.isEmpty()) {
+            buffer.sort(BY_KEY);
+            Iterator<Keyed> iterator = buffer.iterator();
+            return () -> iterator.hasNext() ? iterator.next() : null;
+        }
+        if (!buffer.isEmpty()) {
+            runs.add(writeRun(buffer));
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            runs.add(mergeRuns(group));
+        }
+        return merged(runs);
+    }
+
+    private Keyed keyed(Map<String, Object> record) {
+        Object key = record.get(keyField);
+        if (key == null) {
+            throw new IllegalArgumentException("Record without the key field '" + keyField + "': " + record);
+        }
+        return new Keyed(String.valueOf(key), record);
+    }
+
+    private Path writeRun(List<Keyed> records) throws IOException {
+        records.sort(BY_KEY);
+        Path run = newRunFile();
+        ObjectWriter writer = runWriter();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE);
+             JsonGenerator generator = runMapper().createGenerator(out)) {
+            for (Keyed record : records) {
+                writer.writeValue(generator, record.record());
+            }
+        }
+        return run;
+    }
+
+    private Path mergeRuns(List<Path> group) throws IOException {
+        Path run = newRunFile();
+        RecordSource records = merged(group);
+        ObjectWriter writer = runWriter();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE);
+             JsonGenerator generator = runMapper().createGenerator(out)) {
+            for (Keyed record = records.next(); record != null; record = records.next()) {
+                writer.writeValue(generator, record.record());
+            }
+        }
+        for (Path merged : group) {
+            Files.deleteIfExists(merged);
+        }
+        return run;
+    }
+
+    private Path newRunFile() throws IOException {
+        Path run = Files.createTempFile("gendiff-run", ".smile");
+        runFiles.add(run);
+        return run;
+    }
+
+    private RecordSource merged(List<Path> runs) throws IOException {
+        PriorityQueue<RunSource> queue = new PriorityQueue<>(Comparator.comparing(RunSource::key));
+        for (Path run : runs) {
+            RunSource reader = new RunSource(runMapper().createParser(
+                    new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE)));
+            openRuns.add(reader);
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+        }
+        return () -> {
+            RunSource smallest = queue.poll();
+            if (smallest == null) {
+                return null;
+            }
+            Keyed record = smallest.current;
+            if (smallest.advance()) {
+                queue.add(smallest);
+            }
+            return record;
+        };
+    }
+
+    private static ObjectMapper runMapper() {
+        // Серии пишутся в Smile: двоичный формат компактнее JSON и быстрее разбирается
+        return DataFormat.SMILE.mapper();
+    }
+
+    private static ObjectWriter runWriter() {
+        // Иначе генератор сбрасывался бы в файл после каждой записи
+        return runMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private static long offset(JsonLocation location) {
+        long bytes = location.getByteOffset();
+        return bytes >= 0 ? bytes : location.getCharOffset();
+    }
+
+    /**
+     * Источник записей в порядке ключей.
+     */
+    @FunctionalInterface
+    private interface RecordSource {
+
+        /**
+         * Возвращает следующую запись.
+         *
+         * @return запись или {@code null}, если записей больше нет
+         * @throws IOException если серию не удалось прочитать
+         */
+        Keyed next() throws IOException;
+    }
+
+    private final class RunSource implements Closeable {
+
+        private final JsonParser parser;
+        private Keyed current;
+
+        RunSource(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        String key() {
+            return current.key();
+        }
+
+        boolean advance() throws IOException {
+            if (parser.nextToken() == null) {
+                current = null;
+                parser.close();
+                return false;
+            }
+            current = keyed(TreeReader.readObject(parser));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import hexlet.code.core.HashedList;
+import hexlet.code.core.HashedMap;
+
+import java.io.IOException;
+
+/**
+ * Строит дерево значений документа прямо из потока токенов Jackson.
+ *
+ * <p>Типы значений те же, что даёт {@code ObjectMapper} для {@code Map<String, Object>}
+ * (числа — {@code Integer}/{@code Long}/{@code BigInteger}/{@code Double}), но карты и списки
+ * создаются как {@link HashedMap} и {@link HashedList}: их структурный хеш
+ * вычисляется сразу после чтения, пока дочерние хеши ещё в кеше процессора.</p>
+ */
+final class TreeReader {
+
+    /** Значение, которое фильтр не пропустил; {@code null} занят значением JSON null. */
+    private static final Object SKIPPED = new Object();
+
+    private TreeReader() {
+    }
+
+    static HashedMap readDocument(JsonParser parser) throws IOException {
+        return readDocument(parser, PathFilter.ALL);
+    }
+
+    /**
+     * Читает документ, пропуская на уровне токенов всё, что не проходит через фильтр.
+     *
+     * @param parser парсер, ещё не прочитавший ни одного токена
+     * @param filter фильтр путей
+     * @return документ
+     * @throws IOException если документ не удалось прочитать
+     */
+    static HashedMap readDocument(JsonParser parser, PathFilter filter) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected an object at the top level of the document");
+        }
+        HashedMap document = readObject(parser, filter.root());
+        return document != null ? document : new HashedMap();
+    }
+
+    /**
+     * Читает значение, на первом токене которого стоит парсер.
+     *
+     * @param parser парсер, стоящий на первом токене значения
+     * @return прочитанное значение
+     * @throws IOException если документ не удалось прочитать
+     */
+    static Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            throw new IllegalArgumentException("Unexpected end of the document");
+        }
+        return switch (token) {
+            case START_OBJECT -> readObject(parser);
+            case START_ARRAY -> readArray(parser);
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            case VALUE_EMBEDDED_OBJECT -> parser.getEmbeddedObject();
+            default -> throw new IllegalStateException("Unexpected token: " + token);
+        };
+    }
+
+    static HashedMap readObject(JsonParser parser) throws IOException {
+        HashedMap map = new HashedMap();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            parser.nextToken();
+            map.put(key, readValue(parser));
+        }
+        map.structuralHash();
+        return map;
+    }
+
+    /**
+     * Читает объект, оставляя только ключи, которые пропускает фильтр.
+     *
+     * @param parser парсер, стоящий на начале объекта
+     * @param cursor положение объекта относительно фильтра
+     * @return объект или {@code null}, если объект лежит лишь на пути к включённым ключам
+     *         и ни одного не содержит
+     * @throws IOException если документ не удалось прочитать
+     */
+    private static HashedMap readObject(JsonParser parser, PathFilter.Cursor cursor) throws IOException {
+        if (cursor.unrestricted()) {
+            return readObject(parser);
+        }
+        HashedMap map = new HashedMap();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            parser.nextToken();
+            Object value = readValue(parser, cursor.child(key));
+            if (value != SKIPPED) {
+                map.put(key, value);
+            }
+        }
+        if (map.isEmpty() && !cursor.included()) {
+            return null;
+        }
+        map.structuralHash();
+        return map;
+    }
+
+    private static HashedList readArray(JsonParser parser, PathFilter.Cursor cursor) throws IOException {
+        if (cursor.unrestricted()) {
+            return readArray(parser);
+        }
+        HashedList list = new HashedList();
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            Object value = readValue(parser, cursor.child(Integer.toString(index++)));
+            if (value != SKIPPED) {
+                list.add(value);
+            }
+        }
+        if (list.isEmpty() && !cursor.included()) {
+            return null;
+        }
+        list.structuralHash();
+        return list;
+    }
+
+    private static Object readValue(JsonParser parser, PathFilter.Cursor cursor) throws IOException {
+        if (cursor == null) {
+            // Поддерево исключено: Jackson пропускает его токены, не создавая значений
+            parser.skipChildren();
+            return SKIPPED;
+        }
+        Object value = switch (parser.currentToken()) {
+            case START_OBJECT -> readObject(parser, cursor);
+            case START_ARRAY -> readArray(parser, cursor);
+            default -> cursor.included() ? readValue(parser) : null;
+        };
+        return value != null || cursor.included() ? value : SKIPPED;
+    }
+
+    private static HashedList readArray(JsonParser parser) throws IOException {
+        HashedList list = new HashedList();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readValue(parser));
+        }
+        list.structuralHash();
+        return list;
+    }
+}
@@ -0,0 +1,71 @@
+package hexlet.code;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchDifferTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private static Path resource(String name) throws Exception {
+        var url = Objects.requireNonNull(BatchDifferTest.class.getClassLoader().getResource(name),
+                "Resource not found: " + name);
+        return Path.of(url.toURI());
+    }
+
+    private Path copy(String resource, String target) throws Exception {
+        Path path = tempDir.resolve(target);
+        Files.createDirectories(path.getParent());
+        return Files.copy(resource(resource), path);
+    }
+
+    @Test
+    void directoriesAreMatchedByRelativePath() throws Exception {
+        Path first = copy("file1.json", "left/conf/app.json");
+        Path second = copy("file2.json", "right/conf/app.json");
+        copy("file1.yaml", "left/old.yaml");
+        copy("file2.yaml", "right/zz/new.yaml");
+
+        List<BatchDiffer.Pair> pairs = BatchDiffer.fromDirectories(tempDir.resolve("left"), tempDir.resolve("right"));
+        List<String> reports = new ArrayList<>();
+        boolean success = BatchDiffer.run(pairs, "plain", DiffOptions.DEFAULT, 2, reports::add);
+
+        assertTrue(success);
+        assertEquals(List.of(
+                "diff " + first + " " + second + "\n" + Files.readString(resource("expected/plain.txt")),
+                "Only in first: old.yaml",
+                "Only in second: zz/new.yaml"), reports);
+    }
+
+    @Test
+    void manifestPairsKeepTheirOrder() throws Exception {
+        copy("file1.json", "a.json");
+        copy("file2.json", "b.json");
+        Path manifest = tempDir.resolve("pairs.txt");
+        Files.writeString(manifest, "# baseline against candidates\n"
+                + "b.json\ta.json\n"
+                + "a.json b.json\n"
+                + "a.json missing.json\n");
+
+        List<String> reports = new ArrayList<>();
+        boolean success = BatchDiffer.run(BatchDiffer.fromManifest(manifest), "plain", DiffOptions.DEFAULT, 1,
+                reports::add);
+
+        assertFalse(success);
+        assertEquals(3, reports.size());
+        assertTrue(reports.get(0).contains("Property 'verbose' was removed"));
+        assertTrue(reports.get(1).endsWith(Files.readString(resource("expected/plain.txt"))));
+        assertTrue(reports.get(2).contains("Error: "));
+    }
+}
@@ -0,0 +1,137 @@
+package hexlet.code;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffServerTest {
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int FORBIDDEN = 403;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private DiffServer server;
+    private String token;
+
+    @TempDir
+    private Path tempDir;
+
+    private static String resourcePath(String name) throws Exception {
+        var url = Objects.requireNonNull(DiffServerTest.class.getClassLoader().getResource(name),
+                "Resource not found: " + name);
+        return Path.of(url.toURI()).toString();
+    }
+
+    private static String readResource(String name) throws Exception {
+        return Files.readString(Path.of(resourcePath(name)));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = DiffServer.start(0, DiffOptions.DEFAULT, 2, tempDir.resolve("daemon.token"));
+        token = Files.readString(server.tokenFile());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    private HttpResponse<String> get(String query) throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + server.port() + "/diff?" + query);
+        return client.send(HttpRequest.newBuilder(uri).header(DiffServer.TOKEN_HEADER, token).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void comparesFiles() throws Exception {
+        HttpResponse<String> response = get("first=" + encode(resourcePath("file1.json"))
+                + "&second=" + encode(resourcePath("file2.json")) + "&format=plain");
+
+        assertEquals(OK, response.statusCode());
+        assertEquals(readResource("expected/plain.txt"), response.body());
+    }
+
+    @Test
+    void recursiveFlagIsPerRequest() throws Exception {
+        HttpResponse<String> response = get("first=" + encode(resourcePath("nested1.json"))
+                + "&second=" + encode(resourcePath("nested2.json")) + "&recursive=true");
+
+        assertEquals(readResource("expected/nested_stylish.txt"), response.body());
+    }
+
+    @Test
+    void comparesInlineDocuments() throws Exception {
+        String body = "{\"first\": \"{\\\"a\\\": 1}\", \"second\": \"{\\\"a\\\": 2}\"}";
+        URI uri = URI.create("http://127.0.0.1:" + server.port() + "/diff?format=plain");
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(uri).header(DiffServer.TOKEN_HEADER, token)
+                        .POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(OK, response.statusCode());
+        assertEquals("Property 'a' was updated. From 1 to 2", response.body());
+    }
+
+    @Test
+    void reportsErrors() throws Exception {
+        HttpResponse<String> response = get("first=" + encode(resourcePath("file1.json")));
+
+        assertEquals(BAD_REQUEST, response.statusCode());
+        assertTrue(response.body().contains("second"));
+    }
+
+    @Test
+    void tokenFileIsPrivate() throws Exception {
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(server.tokenFile()));
+
+        DiffServer other = DiffServer.start(0, DiffOptions.DEFAULT, 1, tempDir.resolve("other.token"));
+        other.stop();
+        assertFalse(Files.exists(other.tokenFile()));
+    }
+
+    @Test
+    void rejectsRequestsWithoutToken() throws Exception {
+        token = "0".repeat(token.length());
+        HttpResponse<String> response = get("first=" + encode(resourcePath("file1.json"))
+                + "&second=" + encode(resourcePath("file2.json")));
+
+        assertEquals(FORBIDDEN, response.statusCode());
+    }
+
+    @Test
+    void rejectsForeignHost() throws Exception {
+        // HttpClient не даёт подменить Host, поэтому запрос пишется в сокет вручную
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            String request = "GET /diff?first=a&second=b HTTP/1.1\r\nHost: attacker.example:" + server.port()
+                    + "\r\n" + DiffServer.TOKEN_HEADER + ": " + token + "\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+            assertTrue(response.startsWith("HTTP/1.1 " + FORBIDDEN));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hexlet.code;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffWatcherTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void refreshPrintsDiffOfChangedFile() throws Exception {
+        Path first = Files.writeString(tempDir.resolve("first.json"), "{\"a\": 1, \"b\": {\"c\": 1}}");
+        Path second = Files.writeString(tempDir.resolve("second.json"), "{\"a\": 1, \"b\": {\"c\": 1}}");
+        StringWriter out = new StringWriter();
+        DiffWatcher watcher = new DiffWatcher(first, second, "plain", new DiffOptions(true, 1, false, null), out);
+
+        watcher.start();
+        assertEquals(System.lineSeparator(), out.toString());
+
+        Files.writeString(second, "{\"a\": 1, \"b\": {\"c\": 2}}");
+        out.getBuffer().setLength(0);
+        assertTrue(watcher.refresh(false, true));
+        assertEquals("Property 'b.c' was updated. From 1 to 2" + System.lineSeparator(), out.toString());
+
+        out.getBuffer().setLength(0);
+        assertFalse(watcher.refresh(true, true));
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    void brokenSaveKeepsPreviousState() throws Exception {
+        Path first = Files.writeString(tempDir.resolve("first.json"), "{\"a\": 1}");
+        Path second = Files.writeString(tempDir.resolve("second.json"), "{\"a\": 2}");
+        StringWriter out = new StringWriter();
+        DiffWatcher watcher = new DiffWatcher(first, second, "plain", DiffOptions.DEFAULT, out);
+        watcher.start();
+
+        Files.writeString(second, "{\"a\": ");
+        assertThrows(Exception.class, () -> watcher.refresh(false, true));
+
+        Files.writeString(second, "{\"a\": 3}");
+        out.getBuffer().setLength(0);
+        assertTrue(watcher.refresh(false, true));
+        assertEquals("Property 'a' was updated. From 1 to 3" + System.lineSeparator(), out.toString());
+    }
+
+    @Test
+    void fileTruncatedDuringRefreshFailsWithException() throws Exception {
+        StringBuilder large = new StringBuilder("{");
+        for (int i = 0; i < 50_000; i++) {
+            large.append("\"key").append(i).append("\": ").append(i).append(", ");
+        }
+        String content = large.append("\"last\": 0}").toString();
+        Path first = Files.writeString(tempDir.resolve("first.json"), "{\"a\": 1}");
+        Path second = Files.writeString(tempDir.resolve("second.json"), content);
+        DiffWatcher watcher = new DiffWatcher(first, second, "plain", DiffOptions.DEFAULT, new StringWriter());
+        watcher.start();
+
+        // Файл обрезается и записывается заново, пока наблюдатель его перечитывает
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread truncating = new Thread(() -> {
+            while (running.get()) {
+                try (FileChannel channel = FileChannel.open(second, StandardOpenOption.WRITE)) {
+                    channel.truncate(content.length() / 2);
+                    channel.truncate(0);
+                } catch (Exception e) {
+                    return;
+                }
+                try {
+                    Files.writeString(second, content);
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        });
+        truncating.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                try {
+                    watcher.refresh(false, true);
+                } catch (Exception e) {
+                    // Обрезанный файл — обычная ошибка разбора, а не InternalError из отображения в память
+                    continue;
+                }
+            }
+        } finally {
+            running.set(false);
+            truncating.join();
+        }
+
+        Files.writeString(second, "{\"a\": 2}");
+        assertTrue(watcher.refresh(false, true));
+    }
+}
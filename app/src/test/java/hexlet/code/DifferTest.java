@@ -1,19 +1,40 @@
 package hexlet.code;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import hexlet.code.core.Status;
+import hexlet.code.metrics.DiffMetrics;
+import hexlet.code.metrics.Stage;
+import hexlet.code.parser.DataFormat;
+import hexlet.code.parser.Parser;
+import hexlet.code.parser.PathFilter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 class DifferTest {
+    @TempDir
+    private Path tempDir;
+
     private static String resourcePath(String fileName) throws Exception {
         var url = Objects.requireNonNull(
                 DifferTest.class.getClassLoader().getResource(fileName),
@@ -94,6 +115,202 @@ class DifferTest {
         }
     }
 
+    @Nested
+    @DisplayName("Recursive diff")
+    class RecursiveDiff {
+
+        private final DiffOptions recursive = new DiffOptions(true, 1, false, null);
+
+        @Test
+        void stylish() throws Exception {
+            assertEquals(readResource("expected/nested_stylish.txt"),
+                    Differ.generate(resourcePath("nested1.json"), resourcePath("nested2.json"), "stylish", recursive));
+        }
+
+        @Test
+        void plain() throws Exception {
+            assertEquals(readResource("expected/nested_plain.txt"),
+                    Differ.generate(resourcePath("nested1.json"), resourcePath("nested2.json"), "plain", recursive));
+        }
+
+        @Test
+        void streamingMatchesInMemoryForUnsortedFiles() throws Exception {
+            // Ключи nested1.json не упорядочены: потоковое сравнение сначала переписывает файл
+            String first = resourcePath("nested1.json");
+            String second = resourcePath("nested2.json");
+            for (String format : new String[] {"stylish", "plain", "json", "patch"}) {
+                StringWriter out = new StringWriter();
+                Differ.generateStreaming(first, second, format, recursive, out);
+                assertEquals(Differ.generate(first, second, format, recursive), out.toString(), format);
+            }
+            assertEquals(Differ.stat(first, second, recursive).toMap(),
+                    Differ.statStreaming(first, second, recursive).toMap());
+            assertFalse(Differ.differsStreaming(first, first));
+        }
+
+        @Test
+        void listsAreComparedElementByElement() throws Exception {
+            for (String format : new String[] {"stylish", "plain"}) {
+                assertEquals(readResource("expected/lists_" + format + ".txt"),
+                        Differ.generate(resourcePath("lists1.json"), resourcePath("lists2.json"), format, recursive));
+            }
+        }
+
+        @Test
+        void filteredPathsAreNotCompared() throws Exception {
+            PathFilter filter = PathFilter.of(List.of("common.setting*", "group1"),
+                    List.of("common.setting6.doge", "group1.nest"));
+            DiffOptions filtered = recursive.withFilter(filter);
+            String expected = String.join("\n",
+                    "Property 'common.setting2' was removed",
+                    "Property 'common.setting3' was updated. From true to null",
+                    "Property 'common.setting6.ops' was added with value: 'vops'",
+                    "Property 'group1.baz' was updated. From 'bas' to 'bars'");
+            assertEquals(expected,
+                    Differ.generate(resourcePath("nested1.json"), resourcePath("nested2.json"), "plain", filtered));
+        }
+
+        @Test
+        void flatFilesAreUnaffected() throws Exception {
+            assertEquals(readResource("expected/stylish.txt"),
+                    Differ.generate(resourcePath("file1.json"), resourcePath("file2.json"), "stylish", recursive));
+        }
+    }
+
+    @Test
+    void writesDiffToWriter() throws Exception {
+        for (String format : new String[] {"stylish", "plain", "json"}) {
+            StringWriter out = new StringWriter();
+            Differ.generate(resourcePath("file1.json"), resourcePath("file2.json"), format, DiffOptions.DEFAULT, out);
+            assertEquals(readResource("expected/" + format + ".txt"), out.toString());
+        }
+    }
+
+    @Test
+    void binaryValuesAreBase64() throws Exception {
+        byte[] before = {0, 1, 2};
+        byte[] after = {(byte) 0xFF, (byte) 0xFE};
+        Path first = Files.write(tempDir.resolve("first.smile"), DataFormat.SMILE.mapper().writeValueAsBytes(
+                Map.of("blob", before, "list", List.of(before))));
+        Path second = Files.write(tempDir.resolve("second.smile"), DataFormat.SMILE.mapper().writeValueAsBytes(
+                Map.of("blob", after, "list", List.of(after), "nested", Map.of("raw", after))));
+
+        assertEquals("""
+                {
+                  - blob: AAEC
+                  + blob: //4=
+                  - list: [AAEC]
+                  + list: [//4=]
+                  + nested: {raw=//4=}
+                }""", Differ.generate(first.toString(), second.toString(), "stylish"));
+        assertEquals("""
+                Property 'blob' was updated. From AAEC to //4=
+                Property 'list' was updated. From [complex value] to [complex value]
+                Property 'nested' was added with value: [complex value]""",
+                Differ.generate(first.toString(), second.toString(), "plain"));
+    }
+
+    @Test
+    void compactModelGivesSameOutput() throws Exception {
+        DiffOptions compact = new DiffOptions(true, 1, true, null);
+        for (String format : new String[] {"stylish", "plain"}) {
+            assertEquals(readResource("expected/nested_" + format + ".txt"),
+                    Differ.generate(resourcePath("nested1.json"), resourcePath("nested2.json"), format, compact));
+        }
+        assertEquals(readResource("expected/json.txt"),
+                Differ.generate(resourcePath("file1.yaml"), resourcePath("file2.yaml"), "json",
+                        new DiffOptions(false, 1, true, null)));
+    }
+
+    @Test
+    void generatesAsynchronously() throws Exception {
+        assertEquals(readResource("expected/plain.txt"),
+                Differ.generateAsync(resourcePath("file1.json"), resourcePath("file2.json"), "plain").get());
+
+        CompletableFuture<String> missing = Differ.generateAsync(resourcePath("file1.json"), "missing.json", "plain");
+        ExecutionException error = assertThrows(ExecutionException.class, missing::get);
+        assertInstanceOf(NoSuchFileException.class, error.getCause());
+    }
+
+    @Test
+    void reportsMetricsOfEveryStage() throws Exception {
+        List<DiffMetrics> reported = new ArrayList<>();
+        DiffOptions options = DiffOptions.DEFAULT.withMetrics(reported::add);
+
+        Differ.generate(resourcePath("file1.json"), resourcePath("file2.json"), "plain", options);
+
+        assertEquals(1, reported.size());
+        DiffMetrics metrics = reported.get(0);
+        assertEquals(Set.of(Stage.values()), metrics.wallNanos().keySet());
+        assertEquals(Files.size(Path.of(resourcePath("file1.json"))) + Files.size(Path.of(resourcePath("file2.json"))),
+                metrics.inputBytes());
+        assertEquals(Map.of(Status.ADDED, 1L, Status.REMOVED, 2L, Status.UNCHANGED, 1L, Status.UPDATED, 1L,
+                Status.NESTED, 0L, Status.NESTED_LIST, 0L), metrics.nodeCounts());
+        // Корневой объект и четыре значения первого файла
+        assertEquals(5, metrics.peakDocumentValues());
+        assertTrue(metrics.toJson().contains("\"REMOVED\":2"));
+    }
+
+    @Test
+    void summarizesWithoutBuildingDiff() throws Exception {
+        String file1 = resourcePath("file1.json");
+        String file2 = resourcePath("file2.json");
+
+        assertTrue(Differ.differs(file1, file2, DiffOptions.DEFAULT));
+        assertFalse(Differ.differs(file1, file1, DiffOptions.DEFAULT));
+        assertTrue(Differ.differsStreaming(resourcePath("nested1.json"), resourcePath("nested2.json")));
+        assertEquals("added 1, removed 2, unchanged 1, updated 1",
+                Differ.stat(file1, file2, DiffOptions.DEFAULT).toString());
+    }
+
+    @Test
+    void comparesRecordsByKey() throws Exception {
+        Path first = Files.writeString(tempDir.resolve("a.jsonl"),
+                "{\"id\": \"web\", \"port\": 80}\n{\"id\": \"db\", \"port\": 5432}\n");
+        Path second = Files.writeString(tempDir.resolve("b.jsonl"),
+                "{\"id\": \"web\", \"port\": 8080}\n{\"id\": \"cache\", \"port\": 6379}\n");
+        StringWriter out = new StringWriter();
+
+        Differ.generateRecords(first.toString(), second.toString(), "plain", "id", 1,
+                new DiffOptions(true, 1, false, null), out);
+
+        assertEquals("""
+                Property 'cache' was added with value: [complex value]
+                Property 'db' was removed
+                Property 'web.port' was updated. From 80 to 8080""", out.toString());
+    }
+
+    @Test
+    void patchReproducesSecondDocument() throws Exception {
+        Path shifted1 = Files.writeString(tempDir.resolve("shifted1.json"),
+                "{\"items\": [1, 2, 3, 4, 5, 6], \"a/b~c\": {\"x\": [[1, 2], [3]]}}");
+        Path shifted2 = Files.writeString(tempDir.resolve("shifted2.json"),
+                "{\"items\": [0, 2, 4, 5, 7], \"a/b~c\": {\"x\": [[2], [3, 4]]}}");
+        String[][] pairs = {
+            {resourcePath("file1.json"), resourcePath("file2.json")},
+            {resourcePath("nested1.json"), resourcePath("nested2.json")},
+            {resourcePath("lists1.json"), resourcePath("lists2.json")},
+            {shifted1.toString(), shifted2.toString()},
+        };
+        for (DiffOptions options : new DiffOptions[] {DiffOptions.DEFAULT, new DiffOptions(true, 1, false, null)}) {
+            for (String[] pair : pairs) {
+                Path patch = Files.writeString(tempDir.resolve("diff.patch.json"),
+                        Differ.generate(pair[0], pair[1], "patch", options));
+                assertEquals(Parser.parse(Path.of(pair[1]), "json"), Differ.applyPatch(pair[0], patch.toString()));
+            }
+        }
+    }
+
+    @Test
+    void patchContainsOnlyChanges() throws Exception {
+        DiffOptions recursive = new DiffOptions(true, 1, false, null);
+        assertEquals("[{\"op\":\"replace\",\"path\":\"/hosts/1/weight\",\"value\":3},"
+                        + "{\"op\":\"replace\",\"path\":\"/ports/1\",\"value\":8443},"
+                        + "{\"op\":\"add\",\"path\":\"/ports/3\",\"value\":9090},"
+                        + "{\"op\":\"remove\",\"path\":\"/tags/1\"}]",
+                Differ.generate(resourcePath("lists1.json"), resourcePath("lists2.json"), "patch", recursive));
+    }
+
     @Test
     void unknownFormatThrows() throws Exception {
         assertThrows(IllegalArgumentException.class,
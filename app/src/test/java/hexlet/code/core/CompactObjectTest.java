@@ -0,0 +1,87 @@
+package hexlet.code.core;
+
+import hexlet.code.parser.Parser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactObjectTest {
+
+    private static final String DOCUMENT = "{\"b\": 1, \"a\": [true, null, 2.5, 3000000000], "
+            + "\"c\": {\"x\": \"y\"}, \"n\": 12345678901234567890}";
+
+    @Test
+    @DisplayName("Compact document should equal the regular one and share its structural hash")
+    void sameAsRegularModel() throws Exception {
+        Map<String, Object> regular = Parser.parse(DOCUMENT, "json");
+        Map<String, Object> compact = Parser.parseCompact(DOCUMENT, "json");
+
+        assertInstanceOf(CompactObject.class, compact);
+        assertEquals(regular, compact);
+        assertEquals(compact, regular);
+        assertEquals(StructuralHash.of(regular), StructuralHash.of(compact));
+        assertEquals(List.of("b", "a", "c", "n"), List.copyOf(compact.keySet()));
+    }
+
+    @Test
+    @DisplayName("Numbers should be read back with the same boxed types as in the regular model")
+    void numberTypes() throws Exception {
+        Map<String, Object> compact = Parser.parseCompact(DOCUMENT, "json");
+        List<?> list = (List<?>) compact.get("a");
+
+        assertEquals(1, compact.get("b"));
+        assertEquals(2.5, list.get(2));
+        assertEquals(3000000000L, list.get(3));
+        assertNull(list.get(1));
+        assertFalse(compact.containsKey("missing"));
+    }
+
+    @Test
+    @DisplayName("Sorted accessors should walk keys in ascending order")
+    void sortedAccess() throws Exception {
+        CompactObject compact = (CompactObject) Parser.parseCompact(DOCUMENT, "json");
+
+        assertEquals("a", compact.sortedKey(0));
+        assertEquals("n", compact.sortedKey(compact.size() - 1));
+        assertEquals(1, compact.sortedValue(1));
+    }
+
+    @Test
+    @DisplayName("Duplicate keys should keep the first position and the last value, as with LinkedHashMap.put")
+    void duplicateKeys() throws Exception {
+        Map<String, Object> compact = Parser.parseCompact("{\"a\": 1, \"b\": 2, \"a\": 3}", "json");
+
+        assertEquals(Map.of("a", 3, "b", 2), compact);
+        assertEquals(List.of("a", "b"), List.copyOf(compact.keySet()));
+    }
+
+    @Test
+    @DisplayName("Large objects should be sorted stably and diffed like the regular model")
+    void largeObjectDiff() throws Exception {
+        StringBuilder first = new StringBuilder("{");
+        StringBuilder second = new StringBuilder("{");
+        for (int i = 99; i >= 0; i--) {
+            String separator = i == 99 ? "" : ", ";
+            first.append(separator).append("\"k").append(i).append("\": ").append(i);
+            second.append(separator).append("\"k").append(i).append("\": ").append(i % 7 == 0 ? i + 0.5 : i);
+        }
+        first.append(", \"k5\": \"last\"}");
+        second.append('}');
+
+        CompactObject compact = (CompactObject) Parser.parseCompact(first.toString(), "json");
+        for (int rank = 1; rank < compact.size(); rank++) {
+            assertTrue(compact.sortedKey(rank - 1).compareTo(compact.sortedKey(rank)) < 0);
+        }
+        assertEquals("last", compact.get("k5"));
+        assertEquals(DiffBuilder.build(Parser.parse(first.toString(), "json"), Parser.parse(second.toString(), "json")),
+                DiffBuilder.build(compact, Parser.parseCompact(second.toString(), "json")));
+    }
+}
@@ -0,0 +1,157 @@
+package hexlet.code.core;
+
+import hexlet.code.parser.Parser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffBuilderTest {
+
+    private static final int LONG_LIST = 100_000;
+
+    @Test
+    @DisplayName("Structural hash should ignore key order but not list order")
+    void structuralHashOrder() throws Exception {
+        Map<String, Object> first = Parser.parse("{\"a\": 1, \"b\": [1, 2]}", "json");
+        Map<String, Object> sameKeysReordered = Parser.parse("{\"b\": [1, 2], \"a\": 1}", "json");
+        Map<String, Object> listReordered = Parser.parse("{\"a\": 1, \"b\": [2, 1]}", "json");
+
+        assertEquals(StructuralHash.of(first), StructuralHash.of(sameKeysReordered));
+        assertNotEquals(StructuralHash.of(first), StructuralHash.of(listReordered));
+    }
+
+    @Test
+    @DisplayName("Strings with equal String.hashCode should still hash differently")
+    void structuralHashStrings() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(StructuralHash.of("Aa"), StructuralHash.of("BB"));
+    }
+
+    @Test
+    @DisplayName("Entries that a plain sum of per-key hashes would confuse should hash differently")
+    void structuralHashEntries() throws Exception {
+        Map<String, Object> first = Parser.parse("{\"a\": 1, \"b\": 2}", "json");
+        Map<String, Object> swapped = Parser.parse("{\"a\": 2, \"b\": 1}", "json");
+        Map<String, Object> nested = Parser.parse("{\"a\": {\"b\": [\"x\", \"y\"]}}", "json");
+        Map<String, Object> moved = Parser.parse("{\"a\": {\"b\": [\"y\", \"x\"]}}", "json");
+
+        assertFalse(StructuralHash.same(first, swapped));
+        assertFalse(StructuralHash.same(nested, moved));
+        assertNotEquals(StructuralHash.of("abcd"), StructuralHash.of("abcd\u0000"));
+        assertNotEquals(StructuralHash.of("ab"), StructuralHash.of("\u0000ab"));
+    }
+
+    @Test
+    @DisplayName("Equal documents should have equal hash codes, binary values included")
+    void hashCodeFollowsEquals() throws Exception {
+        Map<String, Object> data1 = Parser.parse("{\"a\": [1, {\"b\": null}]}", "json");
+        Map<String, Object> data2 = Parser.parse("{\"a\": [1, {\"b\": null}]}", "json");
+        HashedMap blob1 = new HashedMap();
+        blob1.put("blob", new byte[] {1, 2});
+        HashedMap blob2 = new HashedMap();
+        blob2.put("blob", new byte[] {1, 2});
+
+        assertEquals(data1, data2);
+        assertEquals(data1.hashCode(), data2.hashCode());
+        assertEquals(blob1, blob2);
+        assertEquals(blob1.hashCode(), blob2.hashCode());
+    }
+
+    @Test
+    @DisplayName("Binary values should be compared by content")
+    void binaryValuesAreComparedByContent() {
+        Map<String, Object> data1 = Map.of("blob", new byte[] {1, 2, 3}, "other", new byte[] {4});
+        Map<String, Object> data2 = Map.of("blob", new byte[] {1, 2, 3}, "other", new byte[] {5});
+
+        assertEquals(StructuralHash.of(new byte[] {1, 2, 3}), StructuralHash.of(new byte[] {1, 2, 3}));
+        assertEquals(Status.UNCHANGED,
+                DiffBuilder.compare("blob", data1.get("blob"), data2.get("blob"), true).status());
+        assertEquals(Status.NESTED, DiffBuilder.compare("root", data1, data2, true).status());
+        assertTrue(StructuralHash.same(Map.of("blob", new byte[] {1}), Map.of("blob", new byte[] {1})));
+    }
+
+    @Test
+    @DisplayName("Recursive diff should descend into maps present on both sides")
+    void recursiveDiff() throws Exception {
+        Map<String, Object> data1 = Parser.parse("{\"group\": {\"a\": 1, \"b\": 2}, \"same\": {\"x\": 1}}", "json");
+        Map<String, Object> data2 = Parser.parse("{\"group\": {\"a\": 1, \"b\": 3}, \"same\": {\"x\": 1}}", "json");
+
+        List<DiffNode> diff = DiffBuilder.build(data1, data2, true);
+
+        assertEquals(Status.NESTED, diff.get(0).status());
+        assertEquals(List.of(
+                new DiffNode("a", Status.UNCHANGED, 1, 1),
+                new DiffNode("b", Status.UPDATED, 2, 3)), diff.get(0).children());
+        assertEquals(Status.UNCHANGED, diff.get(1).status());
+        assertNull(diff.get(1).children());
+    }
+
+    @Test
+    @DisplayName("Sorted merge should give the same diff for regular, compact and mixed inputs")
+    void sortedMergeAcrossModels() throws Exception {
+        String first = "{\"d\": 4, \"b\": {\"x\": 1}, \"a\": 1, \"c\": [1]}";
+        String second = "{\"e\": 5, \"a\": 2, \"c\": [1], \"b\": {\"x\": 2}}";
+        List<DiffNode> expected = List.of(
+                new DiffNode("a", Status.UPDATED, 1, 2),
+                DiffNode.nested("b", List.of(new DiffNode("x", Status.UPDATED, 1, 2))),
+                new DiffNode("c", Status.UNCHANGED, List.of(1), List.of(1)),
+                new DiffNode("d", Status.REMOVED, 4, null),
+                new DiffNode("e", Status.ADDED, null, 5));
+
+        assertEquals(expected, DiffBuilder.build(Parser.parse(first, "json"), Parser.parse(second, "json"), true));
+        assertEquals(expected, DiffBuilder.build(
+                Parser.parseCompact(first, "json"), Parser.parseCompact(second, "json"), true));
+        assertEquals(expected, DiffBuilder.build(
+                Parser.parse(first, "json"), Parser.parseCompact(second, "json"), true));
+    }
+
+    @Test
+    @DisplayName("Counting without building should match the counts of the built diff")
+    void statMatchesBuiltDiff() throws Exception {
+        Map<String, Object> data1 = Parser.parse("{\"a\": 1, \"g\": {\"x\": 1, \"y\": [1, 2, 3]}, "
+                + "\"l\": [{\"k\": 1}, 2], \"s\": \"same\"}", "json");
+        Map<String, Object> data2 = Parser.parse("{\"b\": 2, \"g\": {\"x\": 2, \"y\": [1, 3]}, "
+                + "\"l\": [{\"k\": 2}, 2], \"s\": \"same\"}", "json");
+
+        for (boolean recursive : new boolean[] {false, true}) {
+            DiffStat built = new DiffStat();
+            built.addAll(DiffBuilder.build(data1, data2, recursive));
+            assertEquals(built.toMap(), DiffStat.of(data1, data2, recursive).toMap());
+        }
+        DiffStat stat = DiffStat.of(data1, data2, true);
+        // Изменившийся объект внутри списка тоже раскрывается как NESTED
+        assertEquals(2, stat.count(Status.NESTED));
+        assertEquals(2, stat.count(Status.NESTED_LIST));
+        assertEquals("added 1, removed 2, unchanged 1, updated 2, nested 2, nested_list 2", stat.toString());
+        assertFalse(DiffStat.of(data1, data1, true).hasChanges());
+    }
+
+    @Test
+    @DisplayName("One inserted element should give one node regardless of the list length")
+    void listDiffScalesWithChange() {
+        List<Object> before = new ArrayList<>();
+        for (int i = 0; i < LONG_LIST; i++) {
+            before.add(i);
+        }
+        List<Object> after = new ArrayList<>(before);
+        after.add(LONG_LIST / 2, -1);
+        after.remove(LONG_LIST - 1);
+
+        DiffNode node = DiffBuilder.compare("items", before, after, true);
+
+        assertEquals(Status.NESTED_LIST, node.status());
+        assertEquals(List.of(
+                new DiffNode("[" + LONG_LIST / 2 + "]", Status.ADDED, null, -1),
+                new DiffNode("[" + (LONG_LIST - 2) + "]", Status.REMOVED, LONG_LIST - 2, null)), node.children());
+        assertEquals(Status.UPDATED, DiffBuilder.compare("items", before, after, false).status());
+    }
+}
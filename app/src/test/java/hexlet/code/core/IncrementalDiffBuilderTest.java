@@ -0,0 +1,72 @@
+package hexlet.code.core;
+
+import hexlet.code.parser.Parser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class IncrementalDiffBuilderTest {
+
+    private static final String FIRST = "{\"a\": 1, \"b\": {\"x\": 1, \"y\": {\"z\": 1}}, \"c\": [1, 2], \"d\": true}";
+    private static final String SECOND = "{\"a\": 2, \"b\": {\"x\": 1, \"y\": {\"z\": 2}}, \"c\": [1, 3], \"e\": null}";
+
+    @Test
+    @DisplayName("Rebuilt diff should match a full rebuild and reuse untouched nodes")
+    void reusesUntouchedNodes() throws Exception {
+        Map<String, Object> data1 = Parser.parse(FIRST, "json");
+        Map<String, Object> data2 = Parser.parse(SECOND, "json");
+        List<DiffNode> previous = DiffBuilder.build(data1, data2, true);
+
+        Map<String, Object> changed = Parser.parse(SECOND.replace("\"z\": 2", "\"z\": 3"), "json");
+        List<DiffNode> rebuilt = IncrementalDiffBuilder.rebuild(data1, data2, previous, data1, changed, true);
+
+        assertEquals(DiffBuilder.build(data1, changed, true), rebuilt);
+        assertSame(previous.get(0), rebuilt.get(0));
+        assertSame(previous.get(2), rebuilt.get(2));
+        assertNotSame(previous.get(1), rebuilt.get(1));
+        // В изменённом объекте b узел x не пересоздаётся
+        assertSame(previous.get(1).children().get(0), rebuilt.get(1).children().get(0));
+    }
+
+    @Test
+    @DisplayName("Keys that appear or disappear should be handled like a full rebuild")
+    void keysAddedAndRemoved() throws Exception {
+        Map<String, Object> data1 = Parser.parse(FIRST, "json");
+        Map<String, Object> data2 = Parser.parse(SECOND, "json");
+        List<DiffNode> previous = DiffBuilder.build(data1, data2, false);
+
+        Map<String, Object> changed = Parser.parse("{\"a\": 2, \"d\": true, \"f\": 1}", "json");
+        List<DiffNode> rebuilt = IncrementalDiffBuilder.rebuild(data1, data2, previous, data1, changed, false);
+
+        assertEquals(DiffBuilder.build(data1, changed, false), rebuilt);
+    }
+
+    @Test
+    @DisplayName("Reparsed but unchanged documents should return the previous diff itself")
+    void unchangedDocumentsKeepPreviousDiff() throws Exception {
+        Map<String, Object> data1 = Parser.parse(FIRST, "json");
+        Map<String, Object> data2 = Parser.parse(SECOND, "json");
+        List<DiffNode> previous = DiffBuilder.build(data1, data2, true);
+
+        Map<String, Object> reparsed = Parser.parse(SECOND, "json");
+
+        assertEquals(Set.of(), IncrementalDiffBuilder.changedKeys(data2, reparsed));
+        assertSame(previous, IncrementalDiffBuilder.rebuild(data1, data2, previous, data1, reparsed, true));
+    }
+
+    @Test
+    @DisplayName("Only keys whose values differ should be reported as changed")
+    void changedKeysOfBothSides() throws Exception {
+        Map<String, Object> before = Parser.parse(FIRST, "json");
+        Map<String, Object> after = Parser.parse("{\"a\": 1, \"b\": {\"x\": 2}, \"c\": [1, 2], \"f\": 0}", "json");
+
+        assertEquals(List.of("b", "d", "f"), List.copyOf(IncrementalDiffBuilder.changedKeys(before, after)));
+    }
+}
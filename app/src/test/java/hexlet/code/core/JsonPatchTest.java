@@ -0,0 +1,73 @@
+package hexlet.code.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonPatchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Map<String, Object> read(String json) throws Exception {
+        return MAPPER.readValue(json, new TypeReference<>() { });
+    }
+
+    private static Map<String, Object> apply(String document, String patch) throws Exception {
+        try (JsonParser parser = MAPPER.createParser(patch)) {
+            return JsonPatch.apply(read(document), parser);
+        }
+    }
+
+    @Test
+    void appliesEveryOperation() throws Exception {
+        String patch = """
+                [{"op": "add", "path": "/list/-", "value": 4},
+                 {"op": "add", "path": "/list/0", "value": 0},
+                 {"op": "remove", "path": "/gone"},
+                 {"op": "replace", "path": "/a~1b", "value": {"c": 1}},
+                 {"op": "move", "from": "/a~1b/c", "path": "/moved"},
+                 {"op": "copy", "from": "/list", "path": "/copied"},
+                 {"op": "add", "path": "/copied/-", "value": 5},
+                 {"op": "test", "path": "/list/1", "value": 1, "comment": "ignored"}]""";
+
+        assertEquals(read("{\"list\": [0, 1, 2, 3, 4], \"a/b\": {}, \"moved\": 1, \"copied\": [0, 1, 2, 3, 4, 5]}"),
+                apply("{\"list\": [1, 2, 3], \"gone\": true, \"a/b\": null}", patch));
+    }
+
+    @Test
+    void testComparesNumbersByValue() throws Exception {
+        String document = "{\"a\": 1, \"b\": [10000000000, {\"c\": 2.5}], \"d\": \"1\"}";
+
+        assertEquals(read(document), apply(document, """
+                [{"op": "test", "path": "/a", "value": 1.0},
+                 {"op": "test", "path": "/b", "value": [1e10, {"c": 2.50}]}]"""));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(document, "[{\"op\": \"test\", \"path\": \"/d\", \"value\": 1}]"));
+    }
+
+    @Test
+    void replacesRoot() throws Exception {
+        assertEquals(read("{\"b\": 2}"),
+                apply("{\"a\": 1}", "[{\"op\": \"replace\", \"path\": \"\", \"value\": {\"b\": 2}}]"));
+    }
+
+    @Test
+    void rejectsPatchThatDoesNotFit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> apply("{\"a\": 1}", "[{\"op\": \"remove\", \"path\": \"/b\"}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply("{\"a\": [1]}", "[{\"op\": \"replace\", \"path\": \"/a/01\", \"value\": 2}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply("{\"a\": [1]}", "[{\"op\": \"add\", \"path\": \"/a/2\", \"value\": 2}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply("{\"a\": 1}", "[{\"op\": \"test\", \"path\": \"/a\", \"value\": 2}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply("{\"a\": {}}", "[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"/a/b\"}]"));
+    }
+}
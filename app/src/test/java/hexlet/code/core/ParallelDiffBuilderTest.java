@@ -0,0 +1,48 @@
+package hexlet.code.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ParallelDiffBuilderTest {
+
+    private static final int KEYS = 20_000;
+    private static final int PARALLELISM = 4;
+
+    private static Map<String, Object> document(int seed) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        for (int i = seed; i < KEYS + seed; i++) {
+            Map<String, Object> nested = new LinkedHashMap<>();
+            for (int j = 0; j < KEYS / 4; j += 1000) {
+                nested.put("child" + j, i % 7 == 0 ? j + seed : j);
+            }
+            document.put("key" + i, i % 3 == 0 ? nested : (Object) (i % 5 == 0 ? i + seed : i));
+        }
+        return document;
+    }
+
+    @Test
+    @DisplayName("Parallel diff should produce the same nodes in the same order as the sequential one")
+    void matchesSequential() {
+        Map<String, Object> data1 = document(0);
+        Map<String, Object> data2 = document(100);
+
+        assertEquals(DiffBuilder.build(data1, data2, false),
+                ParallelDiffBuilder.build(data1, data2, false, PARALLELISM));
+        assertEquals(DiffBuilder.build(data1, data2, true),
+                ParallelDiffBuilder.build(data1, data2, true, PARALLELISM));
+    }
+
+    @Test
+    @DisplayName("Repeated builds with the same parallelism should share one pool")
+    void poolIsReused() {
+        assertSame(ParallelDiffBuilder.pool(PARALLELISM), ParallelDiffBuilder.pool(PARALLELISM));
+        assertSame(ForkJoinPool.commonPool(), ParallelDiffBuilder.pool(ForkJoinPool.getCommonPoolParallelism()));
+    }
+}
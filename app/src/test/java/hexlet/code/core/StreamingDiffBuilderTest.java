@@ -0,0 +1,277 @@
+package hexlet.code.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.parser.Parser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingDiffBuilderTest {
+
+    private static final int MANY_KEYS = 2000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static List<DiffNode> diff(String first, String second) throws Exception {
+        List<DiffNode> result = new ArrayList<>();
+        try (JsonParser parser1 = MAPPER.createParser(first);
+             JsonParser parser2 = MAPPER.createParser(second)) {
+            StreamingDiffBuilder.build(parser1, parser2, result::add);
+        }
+        return result;
+    }
+
+    private static List<DiffNode> recursiveDiff(String first, String second) throws Exception {
+        List<DiffNode> result = new ArrayList<>();
+        try (JsonParser parser1 = MAPPER.createParser(first);
+             JsonParser parser2 = MAPPER.createParser(second)) {
+            StreamingDiffBuilder.build(parser1, parser2, true, result::add);
+        }
+        return result;
+    }
+
+    private static DiffStat stat(String first, String second, boolean recursive) throws Exception {
+        try (JsonParser parser1 = MAPPER.createParser(first);
+             JsonParser parser2 = MAPPER.createParser(second)) {
+            return StreamingDiffBuilder.stat(parser1, parser2, recursive);
+        }
+    }
+
+    /**
+     * Записывает события получателя, принимающего вложенные объекты по частям.
+     */
+    private static final class EventSink implements DiffSink {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void write(DiffNode node) {
+            events.add(node.status() + " " + node.key());
+        }
+
+        @Override
+        public boolean streamsNested() {
+            return true;
+        }
+
+        @Override
+        public void startNested(String key) {
+            events.add("start " + key);
+        }
+
+        @Override
+        public void endNested() {
+            events.add("end");
+        }
+    }
+
+    private static List<DiffNode> pipelinedDiff(String first, String second) throws Exception {
+        List<DiffNode> result = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (JsonParser parser1 = MAPPER.createParser(first);
+             JsonParser parser2 = MAPPER.createParser(second)) {
+            StreamingDiffBuilder.build(parser1, parser2, false, executor, result::add);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("Streaming diff should match the in-memory diff for sorted documents")
+    void matchesInMemoryDiff() throws Exception {
+        String first = "{\"a\": 1, \"b\": {\"x\": [1, 2]}, \"c\": \"same\", \"d\": true}";
+        String second = "{\"b\": {\"x\": [1, 3]}, \"c\": \"same\", \"e\": null}";
+
+        Map<String, Object> data1 = Parser.parse(first, "json");
+        Map<String, Object> data2 = Parser.parse(second, "json");
+
+        assertEquals(DiffBuilder.build(data1, data2), diff(first, second));
+    }
+
+    @Test
+    @DisplayName("Recursive streaming should assemble nested nodes for a sink that takes whole nodes")
+    void recursiveMatchesInMemoryDiff() throws Exception {
+        String first = "{\"a\": {\"b\": {\"c\": 1, \"d\": [1, 2]}, \"e\": 1}, \"f\": {\"g\": 1}}";
+        String second = "{\"a\": {\"b\": {\"c\": 2, \"d\": [1, 3]}, \"e\": 1}, \"f\": 2}";
+
+        Map<String, Object> data1 = Parser.parse(first, "json");
+        Map<String, Object> data2 = Parser.parse(second, "json");
+
+        assertEquals(DiffBuilder.build(data1, data2, true), recursiveDiff(first, second));
+    }
+
+    @Test
+    @DisplayName("Objects present on both sides should be streamed level by level, not loaded")
+    void nestedObjectsAreStreamed() throws Exception {
+        String first = "{\"root\": {\"a\": {\"x\": 1, \"y\": 1}, \"same\": {\"z\": 1}}}";
+        String second = "{\"root\": {\"a\": {\"x\": 2, \"y\": 1}, \"same\": {\"z\": 1}}}";
+        EventSink sink = new EventSink();
+
+        try (JsonParser parser1 = MAPPER.createParser(first);
+             JsonParser parser2 = MAPPER.createParser(second)) {
+            StreamingDiffBuilder.build(parser1, parser2, true, sink);
+        }
+
+        // Совпавший объект выводится одним неизменённым узлом, как в DiffBuilder
+        assertEquals(List.of("start root", "start a", "UPDATED x", "UNCHANGED y", "end",
+                "UNCHANGED same", "end"), sink.events);
+    }
+
+    @Test
+    @DisplayName("Equal nested objects should collapse to one unchanged node, as in memory")
+    void equalObjectsCollapse() throws Exception {
+        String first = "{\"a\": {\"b\": {\"c\": 1}, \"d\": [1]}, \"e\": {\"f\": {\"g\": 1}, \"h\": 1}, \"i\": {}}";
+        String second = "{\"a\": {\"b\": {\"c\": 1}, \"d\": [1]}, \"e\": {\"f\": {\"g\": 1}, \"h\": 2}, \"i\": {}}";
+        EventSink sink = new EventSink();
+
+        try (JsonParser parser1 = MAPPER.createParser(first);
+             JsonParser parser2 = MAPPER.createParser(second)) {
+            StreamingDiffBuilder.build(parser1, parser2, true, sink);
+        }
+
+        // Объект «e» открывается только на первом различии, с уже накопленным узлом «f»
+        assertEquals(List.of("UNCHANGED a", "start e", "UNCHANGED f", "UPDATED h", "end", "UNCHANGED i"),
+                sink.events);
+        assertEquals(DiffBuilder.build(Parser.parse(first, "json"), Parser.parse(second, "json"), true),
+                recursiveDiff(first, second));
+    }
+
+    @Test
+    @DisplayName("Streaming statistics should match the in-memory statistics")
+    void statMatchesInMemoryStat() throws Exception {
+        String first = "{\"a\": {\"b\": 1, \"c\": [1, 2, 3]}, \"d\": {\"e\": 1}, \"f\": 1, \"g\": [1]}";
+        String second = "{\"a\": {\"b\": 2, \"c\": [1, 3]}, \"d\": {\"e\": 1}, \"g\": {\"h\": 1}, \"i\": 1}";
+        Map<String, Object> data1 = Parser.parse(first, "json");
+        Map<String, Object> data2 = Parser.parse(second, "json");
+
+        assertEquals(DiffStat.of(data1, data2, true).toMap(), stat(first, second, true).toMap());
+        assertEquals(DiffStat.of(data1, data2, false).toMap(), stat(first, second, false).toMap());
+    }
+
+    @Test
+    @DisplayName("Unsorted nested keys should be rejected")
+    void unsortedNestedKeysThrow() {
+        assertThrows(IllegalStateException.class,
+                () -> recursiveDiff("{\"a\": {\"c\": 1, \"b\": 2}}", "{\"a\": {\"b\": 2}}"));
+    }
+
+    @Test
+    @DisplayName("Unsorted top-level keys should be rejected")
+    void unsortedKeysThrow() {
+        assertThrows(IllegalStateException.class,
+                () -> diff("{\"b\": 1, \"a\": 2}", "{\"a\": 2}"));
+    }
+
+    @Test
+    @DisplayName("A non-object document should be rejected")
+    void nonObjectThrows() {
+        assertThrows(IllegalArgumentException.class,
+                () -> diff("[1, 2]", "{}"));
+    }
+
+    @Test
+    @DisplayName("Reading both documents in background tasks should give the same diff")
+    void pipelinedMatchesSequential() throws Exception {
+        StringJoiner first = new StringJoiner(", ", "{", "}");
+        StringJoiner second = new StringJoiner(", ", "{", "}");
+        for (int i = 0; i < MANY_KEYS; i++) {
+            first.add(String.format("\"k%05d\": %d", i, i));
+            if (i % 3 != 0) {
+                second.add(String.format("\"k%05d\": %d", i, i % 7 == 0 ? -i : i));
+            }
+        }
+
+        assertEquals(diff(first.toString(), second.toString()),
+                pipelinedDiff(first.toString(), second.toString()));
+    }
+
+    @Test
+    @DisplayName("Errors of a background reader should reach the caller")
+    void pipelinedErrorsPropagate() {
+        assertThrows(IllegalStateException.class,
+                () -> pipelinedDiff("{\"b\": 1, \"a\": 2}", "{\"a\": 2}"));
+        assertThrows(IllegalArgumentException.class,
+                () -> pipelinedDiff("{}", "[1]"));
+    }
+
+    @Test
+    @DisplayName("A failure on one side should stop the reader of the other side")
+    void failureCancelsOtherReader() {
+        EndlessDocument endless = new EndlessDocument();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Второй документ бесконечен: без отмены вызов не вернулся бы никогда
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                try (JsonParser parser1 = MAPPER.createParser("{\"a\": 1, \"b\": ???}");
+                     JsonParser parser2 = MAPPER.createParser(endless)) {
+                    assertThrows(IOException.class,
+                            () -> StreamingDiffBuilder.build(parser1, parser2, false, executor, node -> { }));
+                }
+            });
+            assertTrue(endless.closed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Объект с бесконечной последовательностью упорядоченных ключей.
+     */
+    private static final class EndlessDocument extends InputStream {
+
+        private byte[] entry = "{".getBytes(StandardCharsets.US_ASCII);
+        private int position;
+        private long counter;
+        private volatile boolean closed;
+
+        @Override
+        public int read() {
+            if (position == entry.length) {
+                entry = String.format("\"k%019d\": %d, ", counter, counter++).getBytes(StandardCharsets.US_ASCII);
+                position = 0;
+            }
+            return entry[position++];
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    @DisplayName("Equality check should stop reading at the first difference")
+    void differStopsAtFirstDifference() throws Exception {
+        try (JsonParser parser1 = MAPPER.createParser("{\"a\": 1, \"b\": 2}");
+             JsonParser parser2 = MAPPER.createParser("{\"a\": 1, \"b\": 2}")) {
+            assertFalse(StreamingDiffBuilder.differ(parser1, parser2));
+        }
+        // Второй ключ первого документа повреждён, но до него чтение не доходит
+        try (JsonParser parser1 = MAPPER.createParser("{\"a\": 1, \"b\": ???");
+             JsonParser parser2 = MAPPER.createParser("{\"a\": 2, \"b\": 2}")) {
+            assertTrue(StreamingDiffBuilder.differ(parser1, parser2));
+        }
+        try (JsonParser parser1 = MAPPER.createParser("{\"a\": 1}");
+             JsonParser parser2 = MAPPER.createParser("{\"a\": 1, \"b\": 2}")) {
+            assertTrue(StreamingDiffBuilder.differ(parser1, parser2));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package hexlet.code.formatter;
+
+import hexlet.code.core.DiffNode;
+import hexlet.code.core.Status;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FormatterRegistryTest {
+
+    /**
+     * Форматтер из {@code META-INF/services} тестовых ресурсов: выводит ключи через запятую.
+     */
+    public static final class KeysFormatter implements Formatter {
+
+        @Override
+        public String name() {
+            return "keys";
+        }
+
+        @Override
+        public DiffWriter writer(Writer out) {
+            return new DiffWriter() {
+                private boolean first = true;
+
+                @Override
+                public void write(DiffNode node) throws IOException {
+                    out.write(first ? node.key() : "," + node.key());
+                    first = false;
+                }
+
+                @Override
+                public void finish() {
+                }
+            };
+        }
+    }
+
+    @Test
+    void builtInFormattersAreShared() {
+        assertSame(Formatter.getFormatter("stylish"), Formatter.getFormatter("stylish"));
+        assertSame(Formatter.getFormatter("json"), Formatter.getFormatter("json"));
+    }
+
+    @Test
+    void serviceLoaderFormatterIsRegistered() throws Exception {
+        List<DiffNode> diff = List.of(
+                new DiffNode("a", Status.ADDED, null, 1),
+                new DiffNode("b", Status.REMOVED, 2, null));
+
+        assertEquals("a,b", Formatter.getFormatter("keys").format(diff));
+    }
+
+    @Test
+    void unknownFormatThrows() {
+        assertThrows(IllegalArgumentException.class, () -> Formatter.getFormatter("xml"));
+    }
+}
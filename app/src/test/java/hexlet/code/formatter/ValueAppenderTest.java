@@ -0,0 +1,39 @@
+package hexlet.code.formatter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ValueAppenderTest {
+
+    @Test
+    void valuesMatchStringValueOf() throws Exception {
+        List<Object> values = Arrays.asList(null, "text", "", true, false, 0, -7, Integer.MAX_VALUE,
+                Long.MIN_VALUE, Long.MAX_VALUE, 3.5, List.of(1, 2), Map.of("key", "value"));
+
+        for (Object value : values) {
+            StringWriter out = new StringWriter();
+            new ValueAppender(out).value(value);
+            assertEquals(String.valueOf(value), out.toString());
+        }
+    }
+
+    @Test
+    void binaryValuesAreBase64() throws Exception {
+        StringWriter out = new StringWriter();
+        new ValueAppender(out).value(Map.of("raw", List.of(new byte[] {0, 1, 2}, new byte[0])));
+        assertEquals("{raw=[AAEC, ]}", out.toString());
+    }
+
+    @Test
+    void spacesLongerThanBuffer() throws Exception {
+        StringWriter out = new StringWriter();
+        new ValueAppender(out).spaces(300);
+        assertEquals(" ".repeat(300), out.toString());
+    }
+}
@@ -0,0 +1,87 @@
+package hexlet.code.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseCacheTest {
+
+    private static final long LARGE_CACHE = 1 << 20;
+    private static final long SMALL_CACHE = 1000;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+
+    @Test
+    void unchangedFileIsParsedOnce() throws Exception {
+        ParseCache cache = new ParseCache(LARGE_CACHE);
+        Path file = write("a.json", "{\"host\": \"hexlet.io\"}");
+
+        Map<String, Object> first = cache.parse(file, "json");
+
+        assertSame(first, cache.parse(file, "json"));
+        assertEquals(Parser.parse(file, "json"), first);
+    }
+
+    @Test
+    void modifiedFileIsParsedAgain() throws Exception {
+        ParseCache cache = new ParseCache(LARGE_CACHE);
+        Path file = write("a.json", "{\"timeout\": 50}");
+        Map<String, Object> first = cache.parse(file, "json");
+
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        // Тот же размер и то же время изменения: файл переписан в пределах одного тика часов
+        Files.writeString(file, "{\"timeout\": 20}");
+        Files.setLastModifiedTime(file, modified);
+
+        Map<String, Object> second = cache.parse(file, "json");
+        assertNotSame(first, second);
+        assertEquals(20, second.get("timeout"));
+    }
+
+    @Test
+    void leastRecentlyUsedDocumentIsEvicted() throws Exception {
+        ParseCache cache = new ParseCache(SMALL_CACHE);
+        Path first = write("a.json", "{\"key\": \"" + "a".repeat(200) + "\"}");
+        Path second = write("b.json", "{\"key\": \"" + "b".repeat(200) + "\"}");
+        Path third = write("c.json", "{\"key\": \"" + "c".repeat(200) + "\"}");
+
+        Map<String, Object> firstDocument = cache.parse(first, "json");
+        Map<String, Object> secondDocument = cache.parse(second, "json");
+        assertSame(firstDocument, cache.parse(first, "json"));
+        cache.parse(third, "json");
+
+        assertSame(firstDocument, cache.parse(first, "json"));
+        assertNotSame(secondDocument, cache.parse(second, "json"));
+    }
+
+    @Test
+    void compactDocumentsAreEstimatedWithoutBoxing() throws Exception {
+        StringBuilder content = new StringBuilder("{");
+        for (int i = 0; i < 1000; i++) {
+            content.append(i == 0 ? "" : ", ").append("\"key").append(i).append("\": ").append(i);
+        }
+        Path file = write("a.json", content.append('}').toString());
+        ParseCache plain = new ParseCache(LARGE_CACHE);
+        ParseCache compact = new ParseCache(LARGE_CACHE, true);
+
+        plain.parse(file, "json");
+        compact.parse(file, "json");
+
+        assertTrue(compact.size() * 2 < plain.size());
+    }
+}
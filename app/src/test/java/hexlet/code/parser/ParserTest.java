@@ -1,10 +1,16 @@
 package hexlet.code.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.core.StructuralHash;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -14,12 +20,19 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ParserTest {
 
+    private static final String FILTERED_DOCUMENT = "{\"services\": {\"a\": {\"resources\": {\"cpu\": 1}, "
+            + "\"image\": \"x\"}, \"b\": {\"image\": \"y\"}}, \"build\": {\"timestamp\": 1, \"id\": 7}, "
+            + "\"list\": [{\"k\": 1, \"t\": 2}, {\"k\": 3}], \"top\": 1}";
+
     // Constants to avoid magic numbers in tests
     private static final int EXPECTED_SIZE_FILE1_JSON = 4;
     private static final int TIMEOUT_FILE1_JSON = 50;
     private static final int EXPECTED_SIZE_FILE2_JSON = 3;
     private static final int TIMEOUT_FILE2_JSON = 20;
 
+    @TempDir
+    private Path tempDir;
+
     private String getResourcePath(String name) throws Exception {
         var url = Objects.requireNonNull(
                 this.getClass().getClassLoader().getResource(name),
@@ -87,4 +100,99 @@ class ParserTest {
         assertEquals(TIMEOUT_FILE2_JSON, ((Number) map.get("timeout")).intValue());
         assertEquals(true, map.get("verbose"));
     }
+
+    @Test
+    @DisplayName("Include paths should keep only matching subtrees and the objects leading to them")
+    void testIncludeFilter() throws Exception {
+        PathFilter filter = PathFilter.of(List.of("services.*.resources", "/list/*/k"), List.of("build.timestamp"));
+        Map<String, Object> expected = Parser.parse(
+                "{\"services\": {\"a\": {\"resources\": {\"cpu\": 1}}}, \"list\": [{\"k\": 1}, {\"k\": 3}]}",
+                "json");
+
+        assertEquals(expected, Parser.parse(FILTERED_DOCUMENT, "json", filter));
+        try (JsonParser parser = new ObjectMapper().createParser(FILTERED_DOCUMENT)) {
+            assertEquals(StructuralHash.of(expected), StructuralHash.of(CompactReader.readDocument(parser, filter)));
+        }
+    }
+
+    @Test
+    @DisplayName("Exclude paths should drop matching subtrees at any depth")
+    void testExcludeFilter() throws Exception {
+        PathFilter filter = PathFilter.of(List.of(), List.of("build.timestamp", "**.image", "/list/0"));
+        Map<String, Object> expected = Parser.parse("{\"services\": {\"a\": {\"resources\": {\"cpu\": 1}}, "
+                + "\"b\": {}}, \"build\": {\"id\": 7}, \"list\": [{\"k\": 3}], \"top\": 1}", "json");
+
+        assertEquals(expected, Parser.parse(FILTERED_DOCUMENT, "json", filter));
+        try (JsonParser parser = new ObjectMapper().createParser(FILTERED_DOCUMENT)) {
+            assertEquals(StructuralHash.of(expected), StructuralHash.of(CompactReader.readDocument(parser, filter)));
+        }
+        assertEquals(Map.of(), Parser.parse("{\"a\": 1}", "json", PathFilter.of(List.of("b"), List.of())));
+    }
+
+    @Test
+    @DisplayName("Escaped dots and glob characters in dotted paths should match literally")
+    void testEscapedFilterPaths() throws Exception {
+        String document = "{\"labels\": {\"app.kubernetes.io/name\": \"x\", \"app\": {\"kubernetes\": 1}, "
+                + "\"a*b\": 2, \"ab\": 3}}";
+        PathFilter dotted = PathFilter.of(List.of("labels.app\\.kubernetes\\.io/name", "labels.a\\*b"), List.of());
+
+        assertEquals(Map.of("labels", Map.of("app.kubernetes.io/name", "x", "a*b", 2)),
+                Parser.parse(document, "json", dotted));
+        assertThrows(IllegalArgumentException.class, () -> PathFilter.of(List.of("labels\\"), List.of()));
+    }
+
+    @Test
+    @DisplayName("Globs inside a segment should match without backtracking blow-up")
+    void testGlobSegments() throws Exception {
+        String key = "a".repeat(60);
+        String document = "{\"" + key + "\": 1, \"build_id\": 2, \"builds\": 3, \"rebuild\": 4}";
+        PathFilter pathological = PathFilter.of(List.of("a*a*a*a*a*a*a*a*a*b"), List.of());
+
+        assertEquals(Map.of(), Parser.parse(document, "json", pathological));
+        assertEquals(Map.of("build_id", 2, "builds", 3),
+                Parser.parse(document, "json", PathFilter.of(List.of("build?*", "*x*"), List.of())));
+        assertEquals(Map.of(key, 1, "rebuild", 4),
+                Parser.parse(document, "json", PathFilter.of(List.of(), List.of("b*?d*", "build?"))));
+    }
+
+    @Test
+    @DisplayName("Binary formats should be detected by their first bytes regardless of the extension")
+    void testBinaryFormats() throws Exception {
+        Map<String, Object> expected = Parser.parse(
+                "{\"host\": \"hexlet.io\", \"timeout\": 50, \"nested\": {\"list\": [1, 2.5, true, null]}}", "json");
+
+        Map<DataFormat, String> extensions = Map.of(
+                DataFormat.SMILE, "smile", DataFormat.CBOR, "cbor", DataFormat.MESSAGE_PACK, "msgpack");
+        for (Map.Entry<DataFormat, String> format : extensions.entrySet()) {
+            byte[] bytes = format.getKey().mapper().writeValueAsBytes(expected);
+            Path named = Files.write(tempDir.resolve("snapshot." + format.getValue()), bytes);
+            Path unnamed = Files.write(tempDir.resolve(format.getValue() + "-snapshot.bin"), bytes);
+
+            assertEquals(expected, Parser.parse(named, format.getValue()));
+            assertEquals(expected, Parser.parse(unnamed, "bin"));
+        }
+    }
+
+    @Test
+    @DisplayName("Identical binary values should not show up in the diff")
+    void testBinaryValueEqualsItself() throws Exception {
+        byte[] bytes = DataFormat.CBOR.mapper().writeValueAsBytes(Map.of("blob", new byte[] {0, 1, 2, (byte) 0xFF}));
+        Path first = Files.write(tempDir.resolve("first.cbor"), bytes);
+        Path second = Files.write(tempDir.resolve("second.cbor"), bytes);
+
+        assertEquals(Parser.parse(first, "cbor"), Parser.parse(second, "cbor"));
+        assertEquals(Parser.parseCompact(first, "cbor"), Parser.parseCompact(second, "cbor"));
+    }
+
+    @Test
+    @DisplayName("Format detection should prefer signatures, then the extension, then the first byte")
+    void testFormatDetection() {
+        assertEquals(DataFormat.SMILE, DataFormat.detect(new byte[] {':', ')', '\n', 0}, "json"));
+        assertEquals(DataFormat.CBOR, DataFormat.detect(new byte[] {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7}, "yml"));
+        assertEquals(DataFormat.YAML, DataFormat.detect("key: value".getBytes(), "yaml"));
+        assertEquals(DataFormat.JSON, DataFormat.detect(" \n {}".getBytes(), "dump"));
+        assertEquals(DataFormat.CBOR, DataFormat.detect(new byte[] {(byte) 0xBF}, "dump"));
+        assertEquals(DataFormat.MESSAGE_PACK, DataFormat.detect(new byte[] {(byte) 0x82}, "dump"));
+        assertThrows(IllegalArgumentException.class, () -> DataFormat.detect("key: value".getBytes(), "txt"));
+    }
 }
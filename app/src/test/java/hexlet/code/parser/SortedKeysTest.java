@@ -0,0 +1,61 @@
+package hexlet.code.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedKeysTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private static long countTempFiles() throws Exception {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("gendiff-sorted") || name.startsWith("gendiff-object"))
+                    .count();
+        }
+    }
+
+    @Test
+    void sortedFileIsReadInPlace() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.json"), "{\"a\": {\"x\": 1, \"y\": [{\"m\": 1}]}, \"b\": 2}");
+
+        try (SortedKeys sorted = SortedKeys.open(file, "json")) {
+            assertFalse(sorted.rewritten());
+        }
+    }
+
+    @Test
+    void reordersKeysOfEveryObject() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.json"),
+                "{\"b\": {\"y\": \"last\", \"x\": [{\"d\": 1, \"c\": 2}, 3]}, \"a\": 2, \"a\": 3}");
+        long before = countTempFiles();
+
+        try (SortedKeys sorted = SortedKeys.open(file, "json")) {
+            assertTrue(sorted.rewritten());
+            try (JsonParser parser = sorted.createParser()) {
+                assertTrue(SortedKeys.unsortedObjects(parser).isEmpty());
+            }
+            try (JsonParser parser = sorted.createParser()) {
+                parser.nextToken();
+                Object document = Parser.readValue(parser);
+                // Из повторяющихся ключей остаётся последний
+                assertEquals(Map.of("a", 3, "b", Map.of("x", List.of(Map.of("c", 2, "d", 1), 3), "y", "last")),
+                        document);
+                assertEquals(List.of("a", "b"), List.copyOf(((Map<?, ?>) document).keySet()));
+            }
+        }
+        assertEquals(before, countTempFiles());
+    }
+}
@@ -0,0 +1,88 @@
+package hexlet.code.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SortedRecordsTest {
+
+    private static final int RECORDS = SortedRecords.MAX_FAN_IN * 3;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+
+    private static List<String> keys(SortedRecords records) throws Exception {
+        List<String> keys = new ArrayList<>();
+        while (records.next()) {
+            keys.add(records.key());
+        }
+        return keys;
+    }
+
+    private static long countRunFiles() throws Exception {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(path -> path.getFileName().toString().startsWith("gendiff-run")).count();
+        }
+    }
+
+    @Test
+    void sortsInMemory() throws Exception {
+        Path file = write("a.jsonl", "{\"id\": \"b\", \"port\": 80}\n{\"id\": \"a\", \"port\": 443}\n");
+
+        try (SortedRecords records = SortedRecords.sort(file, "jsonl", "id", SortedRecords.DEFAULT_RUN_BYTES)) {
+            records.next();
+            assertEquals(Map.of("id", "a", "port", 443), records.record());
+            records.next();
+            assertEquals("b", records.key());
+        }
+    }
+
+    @Test
+    void spilledRunsAreMergedAndDeleted() throws Exception {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = RECORDS - 1; i >= 0; i--) {
+            String key = String.format("%04d", i);
+            content.append("{\"id\": \"").append(key).append("\"}\n");
+            expected.add(0, key);
+        }
+        Path file = write("a.jsonl", content.toString());
+        long runFilesBefore = countRunFiles();
+
+        // Серия из одной записи: серий больше, чем сливается за один проход
+        try (SortedRecords records = SortedRecords.sort(file, "jsonl", "id", 1)) {
+            assertEquals(expected, keys(records));
+        }
+        assertEquals(runFilesBefore, countRunFiles());
+    }
+
+    @Test
+    void duplicateKeyThrows() throws Exception {
+        Path file = write("a.jsonl", "{\"id\": 1}\n{\"id\": 2}\n{\"id\": 1}\n");
+
+        try (SortedRecords records = SortedRecords.sort(file, "jsonl", "id", 1)) {
+            assertThrows(IllegalStateException.class, () -> keys(records));
+        }
+    }
+
+    @Test
+    void recordWithoutKeyThrows() throws Exception {
+        Path file = write("a.jsonl", "{\"id\": 1}\n{\"name\": \"web\"}\n");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> SortedRecords.sort(file, "jsonl", "id", SortedRecords.DEFAULT_RUN_BYTES));
+    }
+}